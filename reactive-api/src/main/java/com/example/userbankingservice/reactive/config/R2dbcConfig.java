@@ -0,0 +1,34 @@
+package com.example.userbankingservice.reactive.config;
+
+import io.r2dbc.postgresql.PostgresqlConnectionFactoryProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.r2dbc.ConnectionFactoryOptionsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.r2dbc.convert.R2dbcCustomConversions;
+import org.springframework.data.r2dbc.mapping.R2dbcMappingContext;
+
+import java.util.Map;
+
+@Configuration
+public class R2dbcConfig {
+    // Таблица "user" совпадает с ключевым словом PostgreSQL, поэтому все имена в запросах берутся в кавычки
+    @Bean
+    public R2dbcMappingContext r2dbcMappingContext(R2dbcCustomConversions conversions) {
+        R2dbcMappingContext context = new R2dbcMappingContext();
+        context.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        context.setForceQuote(true);
+        return context;
+    }
+
+    // Ожидание блокировки строки ограничено так же, как в основном сервисе; fetchSize включает чтение
+    // результата порциями через портал, чтобы потоковый поиск не загружал всю выборку в память драйвера
+    @Bean
+    public ConnectionFactoryOptionsBuilderCustomizer postgresOptions(
+            @Value("${transfer.lock-timeout-ms:3000}") long lockTimeoutMs,
+            @Value("${search.fetch-size:500}") int fetchSize) {
+        return builder -> builder
+                .option(PostgresqlConnectionFactoryProvider.OPTIONS, Map.of("lock_timeout", String.valueOf(lockTimeoutMs)))
+                .option(PostgresqlConnectionFactoryProvider.FETCH_SIZE, fetchSize);
+    }
+}
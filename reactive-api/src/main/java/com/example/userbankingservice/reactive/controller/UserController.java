@@ -0,0 +1,66 @@
+package com.example.userbankingservice.reactive.controller;
+
+import com.example.userbankingservice.reactive.service.UserService;
+import com.example.userbankingservice.reactive.service.UserView;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/users")
+@RequiredArgsConstructor
+public class UserController {
+    private static final Logger log = LoggerFactory.getLogger(UserController.class);
+    private final UserService userService;
+
+    // Страница в виде JSON-массива или, при Accept: application/x-ndjson, по одному пользователю в строке
+    @GetMapping(value = "/search", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<UserView> searchUsers(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String email,
+            @RequestParam(required = false) String phone,
+            @RequestParam(required = false) LocalDate dateOfBirth,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+        return userService.searchUsers(name, email, phone, dateOfBirth, page, size);
+    }
+
+    // Все совпадения без пагинации; запись в сокет идет по мере готовности клиента принимать данные
+    @GetMapping(value = "/search/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<UserView> streamUsers(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String email,
+            @RequestParam(required = false) String phone,
+            @RequestParam(required = false) LocalDate dateOfBirth) {
+        return userService.streamUsers(name, email, phone, dateOfBirth);
+    }
+
+    @PostMapping("/transfers")
+    public Mono<Void> transferMoney(@AuthenticationPrincipal Long fromUserId,
+                                    @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                    @RequestBody TransferRequest request) {
+        log.info("Перевод от пользователя: {}", fromUserId);
+        return userService.transferMoney(fromUserId, request.getToUserId(), request.getAmount(), idempotencyKey);
+    }
+
+    @Data
+    public static class TransferRequest {
+        private Long toUserId;
+        private BigDecimal amount;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.userbankingservice.reactive.entity;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.ReadOnlyProperty;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.math.BigDecimal;
+
+@Table("account")
+@Data
+public class Account {
+    @Id
+    private Long id;
+
+    private Long userId;
+
+    private BigDecimal balance;
+
+    private BigDecimal initialBalance;
+
+    private Long accrualTick;
+
+    private boolean capped;
+
+    // Версия строки основного сервиса: сохранение увеличивает ее, чтобы оптимистичные переводы видели изменение
+    @Version
+    private Long version;
+
+    // Число полос баланса (account_stripe); полосами управляет основной сервис
+    @ReadOnlyProperty
+    private int stripes;
+}
@@ -0,0 +1,16 @@
+package com.example.userbankingservice.reactive.entity;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+@Table("email_data")
+@Data
+public class EmailData {
+    @Id
+    private Long id;
+
+    private Long userId;
+
+    private String email;
+}
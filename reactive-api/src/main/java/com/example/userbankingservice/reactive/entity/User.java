@@ -0,0 +1,19 @@
+package com.example.userbankingservice.reactive.entity;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDate;
+
+// Связи не загружаются: счет и контакты читаются отдельными запросами по user_id
+@Table("user")
+@Data
+public class User {
+    @Id
+    private Long id;
+
+    private String name;
+
+    private LocalDate dateOfBirth;
+}
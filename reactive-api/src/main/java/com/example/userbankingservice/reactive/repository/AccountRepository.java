@@ -0,0 +1,32 @@
+package com.example.userbankingservice.reactive.repository;
+
+import com.example.userbankingservice.reactive.entity.Account;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+
+@Repository
+public interface AccountRepository extends R2dbcRepository<Account, Long> {
+    Flux<Account> findAllByUserIdIn(Collection<Long> userIds);
+
+    // Блокировка в порядке возрастания id, как в основном сервисе: встречные переводы не образуют взаимоблокировку
+    @Query("SELECT * FROM account WHERE user_id IN (:userIds) ORDER BY id FOR UPDATE")
+    Flux<Account> findAllByUserIdInForUpdate(Collection<Long> userIds);
+
+    // Зачисления, еще не перенесенные из полос баланса в строку счета
+    @Query("SELECT account_id, SUM(balance) AS total FROM account_stripe WHERE account_id IN (:accountIds) GROUP BY account_id")
+    Flux<StripeTotal> findStripeTotals(Collection<Long> accountIds);
+
+    // Как списание в основном сервисе: блокирует полосы счета, обнуляет их и возвращает сумму для строки счета
+    @Query("WITH old AS (SELECT stripe, balance FROM account_stripe WHERE account_id = :accountId " +
+            "ORDER BY stripe FOR UPDATE), " +
+            "drained AS (UPDATE account_stripe s SET balance = 0 FROM old " +
+            "WHERE s.account_id = :accountId AND s.stripe = old.stripe AND old.balance <> 0) " +
+            "SELECT COALESCE(SUM(balance), 0) FROM old")
+    Mono<BigDecimal> drainStripes(Long accountId);
+}
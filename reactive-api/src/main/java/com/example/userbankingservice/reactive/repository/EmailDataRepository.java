@@ -0,0 +1,16 @@
+package com.example.userbankingservice.reactive.repository;
+
+import com.example.userbankingservice.reactive.entity.EmailData;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+@Repository
+public interface EmailDataRepository extends R2dbcRepository<EmailData, Long> {
+    Mono<EmailData> findByEmail(String email);
+
+    Flux<EmailData> findAllByUserIdInOrderById(Collection<Long> userIds);
+}
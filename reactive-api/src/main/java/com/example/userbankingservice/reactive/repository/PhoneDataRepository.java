@@ -0,0 +1,16 @@
+package com.example.userbankingservice.reactive.repository;
+
+import com.example.userbankingservice.reactive.entity.PhoneData;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+@Repository
+public interface PhoneDataRepository extends R2dbcRepository<PhoneData, Long> {
+    Mono<PhoneData> findByPhone(String phone);
+
+    Flux<PhoneData> findAllByUserIdInOrderById(Collection<Long> userIds);
+}
@@ -0,0 +1,7 @@
+package com.example.userbankingservice.reactive.repository;
+
+import java.math.BigDecimal;
+
+// Сумма полос баланса счета
+public record StripeTotal(Long accountId, BigDecimal total) {
+}
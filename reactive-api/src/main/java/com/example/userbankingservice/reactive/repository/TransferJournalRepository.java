@@ -0,0 +1,21 @@
+package com.example.userbankingservice.reactive.repository;
+
+import com.example.userbankingservice.reactive.entity.Account;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.Repository;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+
+// Журнал переводов основного сервиса (transfer_journal). Строка пишется в транзакции перевода;
+// nextval резервирует отдельный блок banking_id_seq, поэтому ID не пересекаются с блоками основного сервиса
+public interface TransferJournalRepository extends Repository<Account, Long> {
+    @Modifying
+    @Query("INSERT INTO transfer_journal (id, from_user_id, to_user_id, amount, from_balance_before, from_balance_after, " +
+            "to_balance_before, to_balance_after, created_at) VALUES (nextval('banking_id_seq'), :fromUserId, :toUserId, " +
+            ":amount, :fromBalanceBefore, :fromBalanceAfter, :toBalanceBefore, :toBalanceAfter, now())")
+    Mono<Integer> append(Long fromUserId, Long toUserId, BigDecimal amount,
+                         BigDecimal fromBalanceBefore, BigDecimal fromBalanceAfter,
+                         BigDecimal toBalanceBefore, BigDecimal toBalanceAfter);
+}
@@ -0,0 +1,9 @@
+package com.example.userbankingservice.reactive.repository;
+
+import com.example.userbankingservice.reactive.entity.User;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UserRepository extends R2dbcRepository<User, Long> {
+}
@@ -0,0 +1,62 @@
+package com.example.userbankingservice.reactive.security;
+
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+
+// Токены выдает основной сервис; проверка подписи выполняется без обращений к базе
+@Component
+public class JwtAuthenticationWebFilter implements WebFilter {
+    private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationWebFilter.class);
+
+    private final JwtParser parser;
+
+    public JwtAuthenticationWebFilter(@Value("${jwt.secret}") String jwtSecret) {
+        byte[] keyBytes = jwtSecret.getBytes(StandardCharsets.UTF_8);
+        // Короткий ключ дополняется до 32 байт так же, как в основном сервисе
+        if (keyBytes.length < 32) {
+            byte[] paddedKey = new byte[32];
+            System.arraycopy(keyBytes, 0, paddedKey, 0, keyBytes.length);
+            keyBytes = paddedKey;
+        }
+        this.parser = Jwts.parser().verifyWith(Keys.hmacShaKeyFor(keyBytes)).build();
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String header = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (header == null || !header.startsWith("Bearer ")) {
+            return chain.filter(exchange);
+        }
+        Long userId;
+        try {
+            userId = parser.parseSignedClaims(header.substring(7)).getPayload().get("userId", Long.class);
+        } catch (JwtException e) {
+            logger.error("Недействительный JWT токен: {}", e.getMessage());
+            return chain.filter(exchange);
+        }
+        if (userId == null) {
+            logger.warn("UserId не найден в JWT токене");
+            return chain.filter(exchange);
+        }
+        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                userId, null, AuthorityUtils.createAuthorityList("ROLE_USER"));
+        return chain.filter(exchange)
+                .contextWrite(ReactiveSecurityContextHolder.withAuthentication(authentication));
+    }
+}
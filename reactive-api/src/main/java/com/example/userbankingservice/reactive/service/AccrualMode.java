@@ -0,0 +1,12 @@
+package com.example.userbankingservice.reactive.service;
+
+public enum AccrualMode {
+    // Загрузка всех счетов и пересчет в Java в одной транзакции
+    ENTITY,
+    // UPDATE по диапазонам id, каждый диапазон в своей короткой транзакции
+    SET_BASED,
+    // Пересчет в Java по диапазонам id на ForkJoinPool, запись одним UPDATE на диапазон с проверкой версии
+    PARALLEL,
+    // Без периодического пересчета: начисления вычисляются при чтении и записываются при изменении баланса
+    LAZY
+}
@@ -0,0 +1,39 @@
+package com.example.userbankingservice.reactive.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+public final class AccrualPolicy {
+    // Копия политики основного сервиса; длительность периода совпадает с интервалом BalanceUpdateSchedulerImpl
+    public static final long TICK_MILLIS = 30_000;
+    private static final BigDecimal RATE = new BigDecimal("1.10");
+    private static final BigDecimal MAX_RATIO = new BigDecimal("2.07");
+
+    private AccrualPolicy() {
+    }
+
+    public static long tickAt(long epochMillis) {
+        return Math.floorDiv(epochMillis, TICK_MILLIS);
+    }
+
+    // Баланс на максимуме не меняется начислением, такой счет выпадает из рабочего набора
+    public static boolean isCapped(BigDecimal balance, BigDecimal initialBalance) {
+        return balance.compareTo(initialBalance.multiply(MAX_RATIO).setScale(2, RoundingMode.HALF_UP)) == 0;
+    }
+
+    // Применяет ticks периодов начисления так же, как периодический пересчет:
+    // +10% за период с округлением до копеек, но не выше 2.07 от начального баланса
+    public static BigDecimal accrue(BigDecimal balance, BigDecimal initialBalance, long ticks) {
+        BigDecimal maxBalance = initialBalance.multiply(MAX_RATIO);
+        BigDecimal current = balance;
+        for (long i = 0; i < ticks; i++) {
+            BigDecimal next = current.multiply(RATE).min(maxBalance).setScale(2, RoundingMode.HALF_UP);
+            // Неподвижная точка: достигнут максимум или сумма слишком мала для роста
+            if (next.compareTo(current) == 0) {
+                break;
+            }
+            current = next;
+        }
+        return current;
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.userbankingservice.reactive.service;
+
+// Режим переводов основного сервиса (transfer.mode). Реактивный перевод всегда блокирует строки счетов;
+// это совместимо со всеми режимами, кроме SHARDED
+public enum TransferMode {
+    // Транзакция и блокировки строк счетов в запросе пользователя
+    PESSIMISTIC,
+    // Счета читаются без блокировок, конфликт версий повторяется
+    OPTIMISTIC,
+    // Проверка средств, списание и зачисление одним условным UPDATE
+    STATEMENT,
+    // Счета изменяют только потоки-владельцы шардов основного сервиса
+    SHARDED
+}
@@ -0,0 +1,15 @@
+package com.example.userbankingservice.reactive.service;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public interface UserService {
+    Flux<UserView> searchUsers(String name, String email, String phone, LocalDate dateOfBirth, int page, int size);
+
+    Flux<UserView> streamUsers(String name, String email, String phone, LocalDate dateOfBirth);
+
+    Mono<Void> transferMoney(Long fromUserId, Long toUserId, BigDecimal amount, String idempotencyKey);
+}
@@ -0,0 +1,313 @@
+package com.example.userbankingservice.reactive.service;
+
+import com.example.userbankingservice.reactive.entity.Account;
+import com.example.userbankingservice.reactive.entity.EmailData;
+import com.example.userbankingservice.reactive.entity.PhoneData;
+import com.example.userbankingservice.reactive.entity.User;
+import com.example.userbankingservice.reactive.repository.AccountRepository;
+import com.example.userbankingservice.reactive.repository.EmailDataRepository;
+import com.example.userbankingservice.reactive.repository.PhoneDataRepository;
+import com.example.userbankingservice.reactive.repository.TransferJournalRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.spi.R2dbcException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+@Service
+public class UserServiceImpl implements UserService {
+    private static final Logger logger = LoggerFactory.getLogger(UserServiceImpl.class);
+    // Ошибки сериализации, взаимоблокировки и таймауты ожидания блокировки, которые драйвер не классифицирует сам
+    private static final Set<String> RETRYABLE_SQL_STATES = Set.of("40001", "40P01", "55P03");
+
+    private final R2dbcEntityTemplate template;
+    private final AccountRepository accountRepository;
+    private final EmailDataRepository emailDataRepository;
+    private final PhoneDataRepository phoneDataRepository;
+    private final TransferJournalRepository transferJournalRepository;
+    private final TransactionalOperator transactionalOperator;
+    private final MeterRegistry meterRegistry;
+    private final AccrualMode accrualMode;
+    private final TransferMode transferMode;
+    private final int maxPageSize;
+    private final int contactBatchSize;
+    private final int maxAttempts;
+    private final long backoffMs;
+
+    public UserServiceImpl(R2dbcEntityTemplate template,
+                           AccountRepository accountRepository,
+                           EmailDataRepository emailDataRepository,
+                           PhoneDataRepository phoneDataRepository,
+                           TransferJournalRepository transferJournalRepository,
+                           TransactionalOperator transactionalOperator,
+                           MeterRegistry meterRegistry,
+                           @Value("${accrual.mode:ENTITY}") AccrualMode accrualMode,
+                           @Value("${transfer.mode:PESSIMISTIC}") TransferMode transferMode,
+                           @Value("${search.max-page-size:100}") int maxPageSize,
+                           @Value("${search.contact-batch-size:100}") int contactBatchSize,
+                           @Value("${transfer.retry.max-attempts:3}") int maxAttempts,
+                           @Value("${transfer.retry.backoff-ms:20}") long backoffMs) {
+        this.template = template;
+        this.accountRepository = accountRepository;
+        this.emailDataRepository = emailDataRepository;
+        this.phoneDataRepository = phoneDataRepository;
+        this.transferJournalRepository = transferJournalRepository;
+        this.transactionalOperator = transactionalOperator;
+        this.meterRegistry = meterRegistry;
+        this.accrualMode = accrualMode;
+        this.transferMode = transferMode;
+        this.maxPageSize = maxPageSize;
+        this.contactBatchSize = contactBatchSize;
+        this.maxAttempts = maxAttempts;
+        this.backoffMs = backoffMs;
+    }
+
+    @Override
+    public Flux<UserView> searchUsers(String name, String email, String phone, LocalDate dateOfBirth, int page, int size) {
+        logger.debug("Поиск пользователей: name={}, email={}, phone={}, dateOfBirth={}, page={}, size={}",
+                name, email, phone, dateOfBirth, page, size);
+        if (size < 1 || size > maxPageSize) {
+            return Flux.error(new RuntimeException("Размер страницы должен быть от 1 до " + maxPageSize));
+        }
+        if (page < 0) {
+            return Flux.error(new RuntimeException("Номер страницы не может быть отрицательным"));
+        }
+        return findUsers(name, email, phone, dateOfBirth, query -> query.limit(size).offset((long) page * size));
+    }
+
+    @Override
+    public Flux<UserView> streamUsers(String name, String email, String phone, LocalDate dateOfBirth) {
+        logger.debug("Потоковый поиск пользователей: name={}, email={}, phone={}, dateOfBirth={}",
+                name, email, phone, dateOfBirth);
+        return findUsers(name, email, phone, dateOfBirth, UnaryOperator.identity());
+    }
+
+    // Те же условия, что и в основном сервисе: префикс имени, точный email и телефон, дата рождения строго позже,
+    // порядок (имя, ID). Строки читаются из базы по мере запроса подписчика, контакты и счета догружаются
+    // пачками по contactBatchSize пользователей, следующая пачка запрашивается после отправки предыдущей
+    private Flux<UserView> findUsers(String name, String email, String phone, LocalDate dateOfBirth,
+                                     UnaryOperator<Query> paging) {
+        Criteria base = Criteria.empty();
+        if (name != null) {
+            base = base.and("name").like(name + "%");
+        }
+        if (dateOfBirth != null) {
+            base = base.and("dateOfBirth").greaterThan(dateOfBirth);
+        }
+        Mono<Criteria> criteria = Mono.just(base);
+        // Пользователь с email или телефоном ищется по уникальному значению; если его нет, результат пуст
+        if (email != null) {
+            criteria = criteria.zipWith(emailDataRepository.findByEmail(email),
+                    (current, emailData) -> current.and("id").is(emailData.getUserId()));
+        }
+        if (phone != null) {
+            criteria = criteria.zipWith(phoneDataRepository.findByPhone(phone),
+                    (current, phoneData) -> current.and("id").is(phoneData.getUserId()));
+        }
+        return criteria
+                .flatMapMany(where -> template.select(User.class)
+                        .matching(paging.apply(Query.query(where).sort(Sort.by("name", "id"))))
+                        .all())
+                .buffer(contactBatchSize)
+                .concatMap(this::toViews, 1);
+    }
+
+    // Счета, email и телефоны пачки загружаются тремя запросами IN, суммы полос баланса - четвертым,
+    // если в пачке есть счета с полосами
+    private Flux<UserView> toViews(List<User> users) {
+        List<Long> ids = users.stream().map(User::getId).toList();
+        return Mono.zip(
+                        accountRepository.findAllByUserIdIn(ids).collectMap(Account::getUserId)
+                                .flatMap(this::withStripeTotals),
+                        emailDataRepository.findAllByUserIdInOrderById(ids)
+                                .collectMultimap(EmailData::getUserId, EmailData::getEmail),
+                        phoneDataRepository.findAllByUserIdInOrderById(ids)
+                                .collectMultimap(PhoneData::getUserId, PhoneData::getPhone))
+                .flatMapIterable(loaded -> users.stream()
+                        .map(user -> new UserView(user.getId(), user.getName(), user.getDateOfBirth(),
+                                values(loaded.getT2(), user.getId()), values(loaded.getT3(), user.getId()),
+                                effectiveBalance(loaded.getT1().get(user.getId()))))
+                        .toList());
+    }
+
+    // Добавляет к балансу строки счета зачисления, еще не перенесенные из полос
+    private Mono<Map<Long, Account>> withStripeTotals(Map<Long, Account> accounts) {
+        Map<Long, Account> striped = accounts.values().stream()
+                .filter(account -> account.getStripes() > 0)
+                .collect(Collectors.toMap(Account::getId, Function.identity()));
+        if (striped.isEmpty()) {
+            return Mono.just(accounts);
+        }
+        return accountRepository.findStripeTotals(striped.keySet())
+                .doOnNext(total -> {
+                    Account account = striped.get(total.accountId());
+                    account.setBalance(account.getBalance().add(total.total()));
+                })
+                .then(Mono.just(accounts));
+    }
+
+    private static List<String> values(Map<Long, Collection<String>> contacts, Long userId) {
+        Collection<String> values = contacts.get(userId);
+        return values != null ? List.copyOf(values) : List.of();
+    }
+
+    @Override
+    public Mono<Void> transferMoney(Long fromUserId, Long toUserId, BigDecimal amount, String idempotencyKey) {
+        logger.info("Перевод денег от пользователя ID: {} к пользователю ID: {}, сумма: {}", fromUserId, toUserId, amount);
+        // В SHARDED счета изменяют только шарды основного сервиса, а незавершенные переводы хранятся
+        // в pending_transfer: перевод под блокировками строк в обход шардов нарушил бы их порядок
+        if (transferMode == TransferMode.SHARDED) {
+            logger.error("Реактивный перевод отклонен: основной сервис работает в режиме SHARDED");
+            return Mono.error(new RuntimeException("Переводы в режиме SHARDED выполняет только основной сервис"));
+        }
+        // Ключи идемпотентности хранит основной сервис; перевод с ключом без проверки мог бы выполниться дважды
+        if (idempotencyKey != null) {
+            logger.error("Реактивный перевод с ключом идемпотентности отклонен: {}", idempotencyKey);
+            return Mono.error(new RuntimeException("Переводы с Idempotency-Key выполняет только основной сервис"));
+        }
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+            logger.error("Сумма перевода должна быть положительной: {}", amount);
+            return Mono.error(new RuntimeException("Сумма должна быть положительной"));
+        }
+        // Как Money.fromDecimal в основном сервисе: доли копейки не округляются, а отклоняются
+        if (amount.scale() > 2 && amount.stripTrailingZeros().scale() > 2) {
+            logger.error("Сумма перевода указана точнее копейки: {}", amount);
+            return Mono.error(new RuntimeException("Сумма должна быть указана с точностью до копейки"));
+        }
+        if (fromUserId.equals(toUserId)) {
+            logger.error("Перевод самому себе запрещен: {}", fromUserId);
+            return Mono.error(new RuntimeException("Перевод самому себе запрещен"));
+        }
+        // Каждая попытка - отдельная транзакция; задержка экспоненциальная со случайным разбросом
+        return transactionalOperator.transactional(transferWithRowLocks(fromUserId, toUserId, amount))
+                .retryWhen(Retry.backoff(maxAttempts - 1, Duration.ofMillis(backoffMs))
+                        .filter(UserServiceImpl::isRetryable)
+                        .doBeforeRetry(signal -> {
+                            String reason = signal.failure().getClass().getSimpleName();
+                            meterRegistry.counter("transfer.retries", "operation", "transfer", "reason", reason).increment();
+                            logger.warn("Конфликт при выполнении transfer (попытка {} из {}): {}",
+                                    signal.totalRetries() + 1, maxAttempts, reason);
+                        })
+                        .onRetryExhaustedThrow((spec, signal) -> {
+                            meterRegistry.counter("transfer.retries.exhausted", "operation", "transfer",
+                                    "reason", signal.failure().getClass().getSimpleName()).increment();
+                            logger.error("Операция transfer не выполнена после {} попыток: {}",
+                                    maxAttempts, signal.failure().getMessage());
+                            return signal.failure();
+                        }))
+                .doOnSuccess(done -> logger.info("Перевод успешно выполнен: {} от ID: {} к ID: {}", amount, fromUserId, toUserId));
+    }
+
+    // Оба счета блокируются одним запросом в порядке возрастания id, изменения балансов и строка журнала
+    // записываются в той же транзакции
+    private Mono<Void> transferWithRowLocks(Long fromUserId, Long toUserId, BigDecimal amount) {
+        return accountRepository.findAllByUserIdInForUpdate(List.of(fromUserId, toUserId))
+                .collectMap(Account::getUserId)
+                .flatMap(accounts -> {
+                    Account fromAccount = accounts.get(fromUserId);
+                    Account toAccount = accounts.get(toUserId);
+                    if (fromAccount == null || toAccount == null) {
+                        logger.error("Счет отправителя или получателя не найден");
+                        return Mono.error(new RuntimeException("Счет не найден"));
+                    }
+                    materialize(fromAccount);
+                    materialize(toAccount);
+                    return borrow(fromAccount).then(Mono.defer(() -> applyTransfer(fromAccount, toAccount, amount)));
+                })
+                .then();
+    }
+
+    private Mono<Void> applyTransfer(Account fromAccount, Account toAccount, BigDecimal amount) {
+        Long fromUserId = fromAccount.getUserId();
+        Long toUserId = toAccount.getUserId();
+        if (fromAccount.getBalance().compareTo(amount) < 0) {
+            logger.error("Недостаточно средств на счете пользователя ID: {}", fromUserId);
+            return Mono.error(new RuntimeException("Недостаточно средств"));
+        }
+        BigDecimal fromBalanceBefore = fromAccount.getBalance();
+        BigDecimal toBalanceBefore = toAccount.getBalance();
+        fromAccount.setBalance(fromBalanceBefore.subtract(amount));
+        toAccount.setBalance(toBalanceBefore.add(amount));
+        return save(fromAccount)
+                .then(save(toAccount))
+                .then(transferJournalRepository.append(fromUserId, toUserId, amount,
+                        fromBalanceBefore, fromAccount.getBalance(), toBalanceBefore, toAccount.getBalance()))
+                .then();
+    }
+
+    // Перед списанием со счета с полосами они переносятся в строку счета; зачисление на такой счет
+    // идет в строку счета под ее блокировкой, без распределения по полосам
+    private Mono<Void> borrow(Account account) {
+        if (account.getStripes() == 0) {
+            return Mono.empty();
+        }
+        return accountRepository.drainStripes(account.getId())
+                .doOnNext(drained -> account.setBalance(account.getBalance().add(drained)))
+                .then();
+    }
+
+    private Mono<Account> save(Account account) {
+        account.setCapped(AccrualPolicy.isCapped(account.getBalance(), account.getInitialBalance()));
+        return accountRepository.save(account);
+    }
+
+    // Баланс с учетом начислений, еще не записанных в строку счета (ленивый режим основного сервиса)
+    BigDecimal effectiveBalance(Account account) {
+        if (account == null) {
+            return null;
+        }
+        if (accrualMode != AccrualMode.LAZY || account.getAccrualTick() == null) {
+            return account.getBalance();
+        }
+        return AccrualPolicy.accrue(account.getBalance(), account.getInitialBalance(),
+                currentTick() - account.getAccrualTick());
+    }
+
+    // Как LazyBalanceAccrual.materialize: в периодических режимах сбрасывает период, в ленивом - записывает начисления
+    void materialize(Account account) {
+        if (accrualMode != AccrualMode.LAZY) {
+            account.setAccrualTick(null);
+            return;
+        }
+        account.setBalance(effectiveBalance(account));
+        account.setAccrualTick(currentTick());
+    }
+
+    private static long currentTick() {
+        return AccrualPolicy.tickAt(System.currentTimeMillis());
+    }
+
+    static boolean isRetryable(Throwable error) {
+        if (error instanceof ConcurrencyFailureException) {
+            return true;
+        }
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof R2dbcException r2dbcException
+                    && RETRYABLE_SQL_STATES.contains(r2dbcException.getSqlState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
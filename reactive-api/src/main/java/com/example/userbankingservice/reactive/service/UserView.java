@@ -0,0 +1,14 @@
+package com.example.userbankingservice.reactive.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+// Тот же формат пользователя, что и в ответе поиска основного сервиса
+public record UserView(Long id,
+                       String name,
+                       LocalDate dateOfBirth,
+                       List<String> emails,
+                       List<String> phones,
+                       BigDecimal balance) {
+}
@@ -0,0 +1,129 @@
+package com.example.userbankingservice.reactive.service;
+
+import com.example.userbankingservice.reactive.entity.Account;
+import com.example.userbankingservice.reactive.repository.AccountRepository;
+import com.example.userbankingservice.reactive.repository.EmailDataRepository;
+import com.example.userbankingservice.reactive.repository.PhoneDataRepository;
+import com.example.userbankingservice.reactive.repository.TransferJournalRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.spi.R2dbcTransientResourceException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class UserServiceImplTest {
+    private AccountRepository accountRepository;
+    private TransferJournalRepository transferJournalRepository;
+    private TransactionalOperator transactionalOperator;
+    private UserServiceImpl userService;
+    private Account fromAccount;
+    private Account toAccount;
+
+    @BeforeEach
+    void setUp() {
+        accountRepository = mock(AccountRepository.class);
+        transferJournalRepository = mock(TransferJournalRepository.class);
+        when(transferJournalRepository.append(any(), any(), any(), any(), any(), any(), any())).thenReturn(Mono.just(1));
+        transactionalOperator = mock(TransactionalOperator.class);
+        when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(accountRepository.save(any(Account.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        userService = service(TransferMode.PESSIMISTIC);
+        fromAccount = account(10L, 1L, "100.00");
+        toAccount = account(20L, 2L, "50.00");
+    }
+
+    @Test
+    void transferMoney_Success() {
+        when(accountRepository.findAllByUserIdInForUpdate(anyList())).thenReturn(Flux.just(fromAccount, toAccount));
+
+        StepVerifier.create(userService.transferMoney(1L, 2L, new BigDecimal("30.00"), null)).verifyComplete();
+
+        assertEquals(new BigDecimal("70.00"), fromAccount.getBalance());
+        assertEquals(new BigDecimal("80.00"), toAccount.getBalance());
+        assertNull(fromAccount.getAccrualTick());
+        verify(accountRepository, times(2)).save(any(Account.class));
+        verify(transferJournalRepository).append(1L, 2L, new BigDecimal("30.00"), new BigDecimal("100.00"),
+                new BigDecimal("70.00"), new BigDecimal("50.00"), new BigDecimal("80.00"));
+    }
+
+    @Test
+    void transferMoney_InsufficientFunds() {
+        when(accountRepository.findAllByUserIdInForUpdate(anyList())).thenReturn(Flux.just(fromAccount, toAccount));
+
+        StepVerifier.create(userService.transferMoney(1L, 2L, new BigDecimal("100.01"), null))
+                .verifyErrorMessage("Недостаточно средств");
+        verify(accountRepository, never()).save(any(Account.class));
+    }
+
+    @Test
+    void transferMoney_RejectsFractionsOfKopeck() {
+        StepVerifier.create(userService.transferMoney(1L, 2L, new BigDecimal("0.001"), null))
+                .verifyErrorMessage("Сумма должна быть указана с точностью до копейки");
+        verify(accountRepository, never()).findAllByUserIdInForUpdate(anyList());
+    }
+
+    @Test
+    void transferMoney_RejectedInShardedMode() {
+        StepVerifier.create(service(TransferMode.SHARDED).transferMoney(1L, 2L, new BigDecimal("10.00"), null))
+                .verifyErrorMessage("Переводы в режиме SHARDED выполняет только основной сервис");
+        verify(accountRepository, never()).findAllByUserIdInForUpdate(anyList());
+    }
+
+    @Test
+    void transferMoney_RejectsIdempotencyKey() {
+        StepVerifier.create(userService.transferMoney(1L, 2L, new BigDecimal("10.00"), "key-1"))
+                .verifyErrorMessage("Переводы с Idempotency-Key выполняет только основной сервис");
+        verify(accountRepository, never()).findAllByUserIdInForUpdate(anyList());
+    }
+
+    @Test
+    void transferMoney_RetriesLockConflict() {
+        AtomicInteger attempts = new AtomicInteger();
+        when(accountRepository.findAllByUserIdInForUpdate(anyList())).thenReturn(Flux.defer(() ->
+                attempts.incrementAndGet() == 1
+                        ? Flux.error(new CannotAcquireLockException("lock"))
+                        : Flux.just(fromAccount, toAccount)));
+
+        StepVerifier.create(userService.transferMoney(1L, 2L, new BigDecimal("10.00"), null)).verifyComplete();
+
+        assertEquals(2, attempts.get());
+        assertEquals(new BigDecimal("90.00"), fromAccount.getBalance());
+    }
+
+    @Test
+    void isRetryable_LockTimeoutSqlState() {
+        assertTrue(UserServiceImpl.isRetryable(new DataAccessResourceFailureException("lock timeout",
+                new R2dbcTransientResourceException("canceling statement due to lock timeout", "55P03"))));
+        assertFalse(UserServiceImpl.isRetryable(new RuntimeException("Недостаточно средств")));
+    }
+
+    private UserServiceImpl service(TransferMode transferMode) {
+        return new UserServiceImpl(mock(R2dbcEntityTemplate.class), accountRepository,
+                mock(EmailDataRepository.class), mock(PhoneDataRepository.class), transferJournalRepository, transactionalOperator,
+                new SimpleMeterRegistry(), AccrualMode.ENTITY, transferMode, 100, 100, 3, 1);
+    }
+
+    private static Account account(Long id, Long userId, String balance) {
+        Account account = new Account();
+        account.setId(id);
+        account.setUserId(userId);
+        account.setBalance(new BigDecimal(balance));
+        account.setInitialBalance(new BigDecimal(balance));
+        account.setAccrualTick(5L);
+        return account;
+    }
+}
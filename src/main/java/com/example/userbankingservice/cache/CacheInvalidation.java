@@ -0,0 +1,7 @@
+package com.example.userbankingservice.cache;
+
+import java.io.Serializable;
+
+// Сообщение об инвалидации L1 на других узлах; key == null означает очистку всего кеша
+public record CacheInvalidation(String origin, String cacheName, Object key) implements Serializable {
+}
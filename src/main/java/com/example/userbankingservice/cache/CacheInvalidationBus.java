@@ -0,0 +1,20 @@
+package com.example.userbankingservice.cache;
+
+import java.util.function.Consumer;
+
+public interface CacheInvalidationBus {
+    void publish(CacheInvalidation invalidation);
+
+    void subscribe(Consumer<CacheInvalidation> listener);
+
+    // Для одного узла без Redis: инвалидировать L1 на других узлах не нужно
+    CacheInvalidationBus LOCAL = new CacheInvalidationBus() {
+        @Override
+        public void publish(CacheInvalidation invalidation) {
+        }
+
+        @Override
+        public void subscribe(Consumer<CacheInvalidation> listener) {
+        }
+    };
+}
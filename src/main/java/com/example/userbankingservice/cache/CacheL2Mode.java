@@ -0,0 +1,6 @@
+package com.example.userbankingservice.cache;
+
+public enum CacheL2Mode {
+    LOCAL,
+    REDIS
+}
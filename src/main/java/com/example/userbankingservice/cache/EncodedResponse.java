@@ -0,0 +1,5 @@
+package com.example.userbankingservice.cache;
+
+// Готовое тело JSON-ответа в UTF-8 и его сильный ETag (в кавычках, как в заголовке)
+public record EncodedResponse(byte[] body, String etag) {
+}
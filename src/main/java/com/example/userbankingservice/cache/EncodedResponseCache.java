@@ -0,0 +1,126 @@
+package com.example.userbankingservice.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.cache.Cache;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Кеш уже сериализованных ответов: при попадании байты отдаются без Jackson.
+// Балансы меняются каждым переводом и начислением, поэтому в кеше лежит тело без них, а текущие балансы
+// читаются при каждом ответе и подставляются на место null. ETag - хеш итогового тела, поэтому одинаковые
+// ответы на разных узлах получают одинаковый ETag
+public class EncodedResponseCache {
+    private static final byte[] BALANCE_SLOT = "\"balance\":null".getBytes(StandardCharsets.UTF_8);
+    private static final int NULL_LENGTH = 4;
+
+    private final Cache cache;
+    private final ObjectMapper objectMapper;
+    private final Function<Collection<Long>, Map<Long, BigDecimal>> balances;
+
+    public EncodedResponseCache(Cache cache, ObjectMapper objectMapper,
+                                Function<Collection<Long>, Map<Long, BigDecimal>> balances) {
+        this.cache = cache;
+        this.objectMapper = objectMapper;
+        this.balances = balances;
+    }
+
+    // balanceOwners перечисляет пользователей значения в порядке сериализации
+    public <T> EncodedResponse get(Object key, Supplier<T> loader, Function<T, List<Long>> balanceOwners) {
+        EncodedTemplate template = cache.get(key, EncodedTemplate.class);
+        if (template == null) {
+            T value = loader.get();
+            template = encode(value, value != null ? balanceOwners.apply(value) : List.of());
+            cache.put(key, template);
+        }
+        return render(template);
+    }
+
+    EncodedTemplate encode(Object value, List<Long> owners) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(value);
+            int[] slots = balanceSlots(body);
+            if (slots.length != owners.size()) {
+                throw new IllegalStateException("Число полей balance в ответе (" + slots.length
+                        + ") не совпадает с числом пользователей (" + owners.size() + ")");
+            }
+            return new EncodedTemplate(body, slots, owners);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать ответ", e);
+        }
+    }
+
+    EncodedResponse render(EncodedTemplate template) {
+        byte[] body = template.body();
+        if (template.balanceSlots().length > 0) {
+            Map<Long, BigDecimal> current = balances.apply(template.balanceOwners());
+            ByteArrayOutputStream out = new ByteArrayOutputStream(body.length + 16 * template.balanceSlots().length);
+            int from = 0;
+            for (int i = 0; i < template.balanceSlots().length; i++) {
+                int slot = template.balanceSlots()[i];
+                out.write(body, from, slot - from);
+                out.writeBytes(encodeBalance(current.get(template.balanceOwners().get(i))));
+                from = slot + NULL_LENGTH;
+            }
+            out.write(body, from, body.length - from);
+            body = out.toByteArray();
+        }
+        return new EncodedResponse(body, etag(body));
+    }
+
+    private byte[] encodeBalance(BigDecimal balance) {
+        if (balance == null) {
+            return "null".getBytes(StandardCharsets.UTF_8);
+        }
+        try {
+            return objectMapper.writeValueAsBytes(balance);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать баланс", e);
+        }
+    }
+
+    // Кавычка внутри строки JSON экранируется, поэтому последовательность "balance":null бывает только полем
+    private static int[] balanceSlots(byte[] body) {
+        int[] slots = new int[8];
+        int count = 0;
+        for (int i = 0; i <= body.length - BALANCE_SLOT.length; i++) {
+            if (matchesAt(body, i)) {
+                if (count == slots.length) {
+                    slots = Arrays.copyOf(slots, count * 2);
+                }
+                slots[count++] = i + BALANCE_SLOT.length - NULL_LENGTH;
+                i += BALANCE_SLOT.length - 1;
+            }
+        }
+        return Arrays.copyOf(slots, count);
+    }
+
+    private static boolean matchesAt(byte[] body, int offset) {
+        for (int j = 0; j < BALANCE_SLOT.length; j++) {
+            if (body[offset + j] != BALANCE_SLOT[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String etag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16)) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
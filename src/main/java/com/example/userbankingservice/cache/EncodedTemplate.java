@@ -0,0 +1,9 @@
+package com.example.userbankingservice.cache;
+
+import java.io.Serializable;
+import java.util.List;
+
+// Закешированное тело JSON-ответа без балансов: balanceSlots - смещения значений null поля balance,
+// balanceOwners - ID пользователей в том же порядке
+public record EncodedTemplate(byte[] body, int[] balanceSlots, List<Long> balanceOwners) implements Serializable {
+}
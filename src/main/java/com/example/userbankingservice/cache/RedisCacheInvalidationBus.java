@@ -0,0 +1,48 @@
+package com.example.userbankingservice.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+
+import java.util.function.Consumer;
+
+public class RedisCacheInvalidationBus implements CacheInvalidationBus {
+    private static final Logger logger = LoggerFactory.getLogger(RedisCacheInvalidationBus.class);
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final JdkSerializationRedisSerializer serializer = new JdkSerializationRedisSerializer();
+    private final ChannelTopic topic;
+    private final String nodeId;
+
+    public RedisCacheInvalidationBus(RedisTemplate<String, Object> redisTemplate,
+                                     RedisMessageListenerContainer listenerContainer,
+                                     String channel, String nodeId) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.topic = new ChannelTopic(channel);
+        this.nodeId = nodeId;
+    }
+
+    @Override
+    public void publish(CacheInvalidation invalidation) {
+        try {
+            redisTemplate.convertAndSend(topic.getTopic(), invalidation);
+        } catch (RuntimeException e) {
+            // Записи L1 на других узлах устареют не дольше чем на cache.l1.ttl
+            logger.warn("Не удалось разослать инвалидацию кеша {}: {}", invalidation.cacheName(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<CacheInvalidation> listener) {
+        listenerContainer.addMessageListener((message, pattern) -> {
+            if (serializer.deserialize(message.getBody()) instanceof CacheInvalidation invalidation
+                    && !nodeId.equals(invalidation.origin())) {
+                listener.accept(invalidation);
+            }
+        }, topic);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.userbankingservice.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+// Множество Redis на зависимость рядом с записями L2. Срок множества продлевается при каждой записи
+// до срока жизни записи в L2, поэтому оно не истекает раньше ключей, которые в нем перечислены
+public class RedisUserKeyIndex implements UserKeyIndex {
+    private static final Logger logger = LoggerFactory.getLogger(RedisUserKeyIndex.class);
+    private static final String PREFIX = "users:keys:";
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final Duration ttl;
+
+    public RedisUserKeyIndex(RedisTemplate<String, Object> redisTemplate, Duration ttl) {
+        this.redisTemplate = redisTemplate;
+        this.ttl = ttl;
+    }
+
+    // Все зависимости записи (страница поиска - до size пользователей) одним конвейером
+    @Override
+    public void add(Collection<String> dependencies, Object key) {
+        if (dependencies.isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, Object> redis = (RedisOperations<String, Object>) operations;
+                    for (String dependency : dependencies) {
+                        redis.opsForSet().add(PREFIX + dependency, key);
+                        redis.expire(PREFIX + dependency, ttl);
+                    }
+                    return null;
+                }
+            });
+        } catch (RuntimeException e) {
+            // Запись устареет не дольше чем на cache.l2.ttl
+            logger.warn("Не удалось добавить ключ {} в индекс кеша {}: {}", key, dependencies, e.getMessage());
+        }
+    }
+
+    // Удаляются только прочитанные ключи: ключ, добавленный параллельно, останется до следующего изменения
+    @Override
+    public Collection<Object> remove(String dependency) {
+        try {
+            Set<Object> keys = redisTemplate.opsForSet().members(PREFIX + dependency);
+            if (keys == null || keys.isEmpty()) {
+                return List.of();
+            }
+            redisTemplate.opsForSet().remove(PREFIX + dependency, keys.toArray());
+            return keys;
+        } catch (RuntimeException e) {
+            logger.warn("Не удалось прочитать индекс кеша {}: {}", dependency, e.getMessage());
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.userbankingservice.cache;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+// Ключ кешей userSearch и searchResponses: page задан для постраничного поиска, null - для поиска по курсору.
+// Фильтры email и телефона нужны UserCacheIndex: изменение контакта сбрасывает поиски по нему
+public record SearchKey(String name, String email, String phone, LocalDate dateOfBirth,
+                        Integer page, String cursor, int size) implements Serializable {
+    public static SearchKey page(String name, String email, String phone, LocalDate dateOfBirth, int page, int size) {
+        return new SearchKey(name, email, phone, dateOfBirth, page, null, size);
+    }
+
+    public static SearchKey cursor(String name, String email, String phone, LocalDate dateOfBirth, String cursor, int size) {
+        return new SearchKey(name, email, phone, dateOfBirth, null, cursor, size);
+    }
+}
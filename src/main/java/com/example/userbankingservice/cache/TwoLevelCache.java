@@ -0,0 +1,235 @@
+package com.example.userbankingservice.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+
+// L1 в памяти процесса перед общим L2. Запись и удаление идут сначала в L2, затем в L1;
+// удаление рассылается другим узлам, чтобы они сбросили свои копии в L1
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+    private static final Logger logger = LoggerFactory.getLogger(TwoLevelCache.class);
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<Object, Object> l1;
+    private final Cache l2;
+    private final CacheInvalidationBus invalidationBus;
+    private final String nodeId;
+    private final BiConsumer<Object, Object> l1StoreListener;
+    private final BiConsumer<Object, Object> l2StoreListener;
+    private final ConcurrentMap<Object, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+    private final Counter l1Hits;
+    private final Counter l1Misses;
+    private final Counter l2Hits;
+    private final Counter l2Misses;
+    private final Counter l2Errors;
+
+    public TwoLevelCache(String name,
+                         com.github.benmanes.caffeine.cache.Cache<Object, Object> l1,
+                         Cache l2,
+                         CacheInvalidationBus invalidationBus,
+                         String nodeId,
+                         MeterRegistry meterRegistry) {
+        this(name, l1, l2, invalidationBus, nodeId, meterRegistry, (key, value) -> {
+        });
+    }
+
+    // l1StoreListener вызывается для каждого значения, попавшего в L1 этого узла
+    public TwoLevelCache(String name,
+                         com.github.benmanes.caffeine.cache.Cache<Object, Object> l1,
+                         Cache l2,
+                         CacheInvalidationBus invalidationBus,
+                         String nodeId,
+                         MeterRegistry meterRegistry,
+                         BiConsumer<Object, Object> l1StoreListener) {
+        this(name, l1, l2, invalidationBus, nodeId, meterRegistry, l1StoreListener, (key, value) -> {
+        });
+    }
+
+    // l2StoreListener вызывается для каждого значения, записанного этим узлом в L2
+    public TwoLevelCache(String name,
+                         com.github.benmanes.caffeine.cache.Cache<Object, Object> l1,
+                         Cache l2,
+                         CacheInvalidationBus invalidationBus,
+                         String nodeId,
+                         MeterRegistry meterRegistry,
+                         BiConsumer<Object, Object> l1StoreListener,
+                         BiConsumer<Object, Object> l2StoreListener) {
+        super(true);
+        this.name = name;
+        this.l1 = l1;
+        this.l2 = l2;
+        this.invalidationBus = invalidationBus;
+        this.nodeId = nodeId;
+        this.l1StoreListener = l1StoreListener;
+        this.l2StoreListener = l2StoreListener;
+        this.l1Hits = meterRegistry.counter("cache.level.gets", "cache", name, "level", "l1", "result", "hit");
+        this.l1Misses = meterRegistry.counter("cache.level.gets", "cache", name, "level", "l1", "result", "miss");
+        this.l2Hits = meterRegistry.counter("cache.level.gets", "cache", name, "level", "l2", "result", "hit");
+        this.l2Misses = meterRegistry.counter("cache.level.gets", "cache", name, "level", "l2", "result", "miss");
+        this.l2Errors = meterRegistry.counter("cache.level.errors", "cache", name, "level", "l2");
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return l1;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        Object value = l1.getIfPresent(key);
+        if (value != null) {
+            l1Hits.increment();
+            return value;
+        }
+        l1Misses.increment();
+        Object storeValue = lookupL2(key);
+        if (storeValue != null) {
+            storeL1(key, storeValue);
+        }
+        return storeValue;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Object storeValue = l1.getIfPresent(key);
+        if (storeValue != null) {
+            l1Hits.increment();
+            return (T) fromStoreValue(storeValue);
+        }
+        // Загрузка одного ключа выполняется один раз, конкурентные запросы ждут ее результат. Загрузка идет
+        // вне compute Caffeine: он держит монитор, и ожидание базы закрепило бы виртуальный поток за носителем
+        CompletableFuture<Object> own = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = loading.putIfAbsent(key, own);
+        if (inFlight != null) {
+            return (T) fromStoreValue(await(inFlight));
+        }
+        try {
+            storeValue = l1.getIfPresent(key);
+            if (storeValue == null) {
+                l1Misses.increment();
+                storeValue = lookupL2(key);
+                if (storeValue == null) {
+                    storeValue = toStoreValue(load(key, valueLoader));
+                    putL2(key, fromStoreValue(storeValue));
+                }
+                storeL1(key, storeValue);
+            }
+            own.complete(storeValue);
+            return (T) fromStoreValue(storeValue);
+        } catch (RuntimeException e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, own);
+        }
+    }
+
+    private static Object load(Object key, Callable<?> valueLoader) {
+        try {
+            return valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> inFlight) {
+        try {
+            return inFlight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        putL2(key, value);
+        storeL1(key, toStoreValue(value));
+    }
+
+    @Override
+    public void evict(Object key) {
+        evictWithoutBroadcast(key);
+        invalidationBus.publish(new CacheInvalidation(nodeId, name, key));
+    }
+
+    // Удаление из L2 и своего L1, когда другие узлы оповещаются отдельным сообщением
+    public void evictWithoutBroadcast(Object key) {
+        try {
+            l2.evict(key);
+        } catch (RuntimeException e) {
+            l2Errors.increment();
+            logger.warn("Не удалось удалить ключ {} из L2 кеша {}: {}", key, name, e.getMessage());
+        }
+        l1.invalidate(key);
+    }
+
+    @Override
+    public void clear() {
+        try {
+            l2.clear();
+        } catch (RuntimeException e) {
+            l2Errors.increment();
+            logger.warn("Не удалось очистить L2 кеш {}: {}", name, e.getMessage());
+        }
+        l1.invalidateAll();
+        invalidationBus.publish(new CacheInvalidation(nodeId, name, null));
+    }
+
+    // Инвалидация, пришедшая с другого узла: L2 уже изменен отправителем
+    public void evictLocal(Object key) {
+        if (key == null) {
+            l1.invalidateAll();
+        } else {
+            l1.invalidate(key);
+        }
+    }
+
+    private void storeL1(Object key, Object storeValue) {
+        l1.put(key, storeValue);
+        l1StoreListener.accept(key, fromStoreValue(storeValue));
+    }
+
+    // Недоступность L2 не должна ломать запросы: ошибка считается промахом
+    private Object lookupL2(Object key) {
+        try {
+            ValueWrapper wrapper = l2.get(key);
+            if (wrapper != null) {
+                l2Hits.increment();
+                return toStoreValue(wrapper.get());
+            }
+        } catch (RuntimeException e) {
+            l2Errors.increment();
+            logger.warn("Ошибка чтения ключа {} из L2 кеша {}: {}", key, name, e.getMessage());
+        }
+        l2Misses.increment();
+        return null;
+    }
+
+    private void putL2(Object key, Object value) {
+        try {
+            l2.put(key, value);
+            l2StoreListener.accept(key, value);
+        } catch (RuntimeException e) {
+            l2Errors.increment();
+            logger.warn("Ошибка записи ключа {} в L2 кеш {}: {}", key, name, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.userbankingservice.cache;
+
+import com.example.userbankingservice.service.CursorSlice;
+import com.example.userbankingservice.service.UserSummary;
+import com.example.userbankingservice.service.UserView;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.data.domain.Page;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+// Обратный индекс кешей, зависящих от пользователя: зависимость -> ключи, под которыми производные данные лежат
+// в L1 этого узла. Зависимости - пользователь (записи users под ID, email и телефоном и поиски, в ответ которых
+// он попал) и контакт (поиски с фильтром по этому email или телефону). Имя и дата рождения не меняются,
+// поэтому изменение контакта затрагивает только эти поиски, остальные записи поиска не сбрасываются.
+// Ключи общего L2 дополнительно хранятся рядом с ним (UserKeyIndex), чтобы изменение пользователя сбрасывало
+// и записи, сделанные другими узлами
+public class UserCacheIndex {
+    public static final String USER_INVALIDATION = "users:user";
+
+    private final CacheInvalidationBus invalidationBus;
+    private final String nodeId;
+    private final UserKeyIndex sharedKeys;
+    // Индекс живет не меньше записи в L2, иначе изменение не найдет ключ, еще видимый другим узлам
+    private final com.github.benmanes.caffeine.cache.Cache<String, Set<Object>> keysByDependency;
+    private volatile TwoLevelCache usersCache;
+    private volatile TwoLevelCache userResponsesCache;
+    private final List<TwoLevelCache> searchCaches = new CopyOnWriteArrayList<>();
+
+    public UserCacheIndex(CacheInvalidationBus invalidationBus, String nodeId, Duration ttl) {
+        this(invalidationBus, nodeId, ttl, UserKeyIndex.LOCAL);
+    }
+
+    public UserCacheIndex(CacheInvalidationBus invalidationBus, String nodeId, Duration ttl, UserKeyIndex sharedKeys) {
+        this.invalidationBus = invalidationBus;
+        this.nodeId = nodeId;
+        this.sharedKeys = sharedKeys;
+        this.keysByDependency = Caffeine.newBuilder().expireAfterWrite(ttl).build();
+        invalidationBus.subscribe(invalidation -> {
+            if (USER_INVALIDATION.equals(invalidation.cacheName())
+                    && invalidation.key() instanceof UserInvalidation userInvalidation) {
+                evictKeys(userInvalidation.userId(), userInvalidation.contacts(), false);
+            }
+        });
+    }
+
+    public void bind(TwoLevelCache usersCache) {
+        this.usersCache = usersCache;
+    }
+
+    // Готовые ответы с пользователем хранятся по ID и сбрасываются вместе с записями users
+    public void bindResponses(TwoLevelCache userResponsesCache) {
+        this.userResponsesCache = userResponsesCache;
+    }
+
+    // Кеши с ключом SearchKey: результаты поиска и готовые ответы поиска
+    public void bindSearch(TwoLevelCache searchCache) {
+        searchCaches.add(searchCache);
+    }
+
+    static String userDependency(Long userId) {
+        return "user:" + userId;
+    }
+
+    static String contactDependency(String contact) {
+        return "contact:" + contact;
+    }
+
+    // Слушатель L1 кеша users
+    public void register(Object key, Object value) {
+        if (value instanceof UserSummary user && user.id() != null) {
+            index(userDependency(user.id()), key);
+        }
+    }
+
+    // Слушатель записей в L2 кеша users
+    public void registerShared(Object key, Object value) {
+        if (value instanceof UserSummary user && user.id() != null) {
+            sharedKeys.add(List.of(userDependency(user.id())), key);
+        }
+    }
+
+    // Слушатель L1 кешей поиска
+    public void registerSearch(Object key, Object value) {
+        if (key instanceof SearchKey searchKey) {
+            searchDependencies(searchKey, value).forEach(dependency -> index(dependency, key));
+        }
+    }
+
+    // Слушатель записей в L2 кешей поиска
+    public void registerSharedSearch(Object key, Object value) {
+        if (key instanceof SearchKey searchKey) {
+            sharedKeys.add(searchDependencies(searchKey, value), key);
+        }
+    }
+
+    private void index(String dependency, Object key) {
+        keysByDependency.asMap().compute(dependency, (ignored, keys) -> {
+            Set<Object> result = keys != null ? keys : ConcurrentHashMap.newKeySet();
+            result.add(key);
+            return result;
+        });
+    }
+
+    private static List<String> searchDependencies(SearchKey key, Object value) {
+        List<String> dependencies = new ArrayList<>();
+        if (key.email() != null) {
+            dependencies.add(contactDependency(key.email()));
+        }
+        if (key.phone() != null) {
+            dependencies.add(contactDependency(key.phone()));
+        }
+        usersOf(value).forEach(userId -> dependencies.add(userDependency(userId)));
+        return dependencies;
+    }
+
+    // Пользователи, попавшие в результат поиска
+    private static List<Long> usersOf(Object value) {
+        if (value instanceof EncodedTemplate template) {
+            return template.balanceOwners();
+        }
+        List<?> content = value instanceof Page<?> page ? page.getContent()
+                : value instanceof CursorSlice<?> slice ? slice.content()
+                : List.of();
+        return content.stream()
+                .filter(UserView.class::isInstance)
+                .map(view -> ((UserView) view).id())
+                .toList();
+    }
+
+    // Инвалидирует все закешированное по пользователю и поиски по его измененным контактам (добавленный email
+    // мог быть закеширован как отрицательный результат и как пустой поиск). Внутри транзакции - после фиксации,
+    // чтобы конкурентное чтение не вернуло в кеш данные до изменения
+    public void evictUser(Long userId, String... contacts) {
+        List<String> changed = List.of(contacts);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(userId, changed);
+                }
+            });
+        } else {
+            invalidate(userId, changed);
+        }
+    }
+
+    private void invalidate(Long userId, List<String> contacts) {
+        evictKeys(userId, contacts, true);
+        invalidationBus.publish(new CacheInvalidation(nodeId, USER_INVALIDATION, new UserInvalidation(userId, contacts)));
+    }
+
+    // Общий индекс и L2 изменяет только узел, изменивший пользователя; остальным узлам достаточно своих L1
+    private void evictKeys(Long userId, List<String> contacts, boolean shared) {
+        BiConsumer<TwoLevelCache, Object> drop = shared ? TwoLevelCache::evictWithoutBroadcast : TwoLevelCache::evictLocal;
+        TwoLevelCache responses = userResponsesCache;
+        if (responses != null) {
+            drop.accept(responses, userId);
+        }
+        TwoLevelCache users = usersCache;
+        if (users != null) {
+            drop.accept(users, userId);
+            contacts.forEach(contact -> drop.accept(users, contact));
+        }
+        List<String> dependencies = new ArrayList<>();
+        dependencies.add(userDependency(userId));
+        contacts.forEach(contact -> dependencies.add(contactDependency(contact)));
+        for (String dependency : dependencies) {
+            Set<Object> keys = keysByDependency.asMap().remove(dependency);
+            if (keys != null) {
+                keys.forEach(key -> evict(key, drop));
+            }
+            if (shared) {
+                sharedKeys.remove(dependency).forEach(key -> evict(key, drop));
+            }
+        }
+    }
+
+    private void evict(Object key, BiConsumer<TwoLevelCache, Object> drop) {
+        if (key instanceof SearchKey) {
+            searchCaches.forEach(cache -> drop.accept(cache, key));
+        } else if (usersCache != null) {
+            drop.accept(usersCache, key);
+        }
+    }
+
+    public record UserInvalidation(Long userId, List<String> contacts) implements Serializable {
+    }
+}
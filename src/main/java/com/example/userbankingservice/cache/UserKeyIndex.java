@@ -0,0 +1,27 @@
+package com.example.userbankingservice.cache;
+
+import java.util.Collection;
+import java.util.List;
+
+// Ключи L2 кешей пользователя и поиска по зависимости (пользователь или контакт, см. UserCacheIndex), общие
+// для всех узлов. Нужен, когда L2 общий (Redis): запись, сделанная другим узлом или этим узлом до перезапуска,
+// не попадает в локальный индекс UserCacheIndex
+public interface UserKeyIndex {
+    // Вызывается при каждой записи в L2 со всеми зависимостями записи
+    void add(Collection<String> dependencies, Object key);
+
+    // Возвращает ключи зависимости и удаляет их из индекса
+    Collection<Object> remove(String dependency);
+
+    // L2 в памяти процесса: все его ключи уже есть в локальном индексе
+    UserKeyIndex LOCAL = new UserKeyIndex() {
+        @Override
+        public void add(Collection<String> dependencies, Object key) {
+        }
+
+        @Override
+        public Collection<Object> remove(String dependency) {
+            return List.of();
+        }
+    };
+}
@@ -0,0 +1,169 @@
+package com.example.userbankingservice.config;
+
+import com.example.userbankingservice.cache.CacheInvalidationBus;
+import com.example.userbankingservice.cache.CacheL2Mode;
+import com.example.userbankingservice.cache.EncodedResponseCache;
+import com.example.userbankingservice.cache.RedisCacheInvalidationBus;
+import com.example.userbankingservice.cache.RedisUserKeyIndex;
+import com.example.userbankingservice.cache.TwoLevelCache;
+import com.example.userbankingservice.cache.UserCacheIndex;
+import com.example.userbankingservice.cache.UserKeyIndex;
+import com.example.userbankingservice.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.serializer.support.SerializationDelegate;
+import org.springframework.data.redis.cache.BatchStrategies;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentMap;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    private static final List<String> CACHE_NAMES = List.of("users", "userSearch", "userResponses", "searchResponses");
+    // Отличает собственные сообщения об инвалидации от сообщений других узлов
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Value("${cache.l1.maximum-size:10000}")
+    private long l1MaximumSize;
+
+    @Value("${cache.l1.ttl:60s}")
+    private Duration l1Ttl;
+
+    @Value("${cache.l2.mode:LOCAL}")
+    private CacheL2Mode l2Mode;
+
+    @Value("${cache.l2.ttl:10m}")
+    private Duration l2Ttl;
+
+    @Value("${cache.invalidation-channel:cache-invalidation}")
+    private String invalidationChannel;
+
+    @Bean
+    public CacheManager cacheManager(MeterRegistry meterRegistry,
+                                     CacheInvalidationBus cacheInvalidationBus,
+                                     UserCacheIndex userCacheIndex,
+                                     ObjectProvider<RedisConnectionFactory> redisConnectionFactory) {
+        RedisCacheManager redisCacheManager = l2Mode == CacheL2Mode.REDIS ? redisCacheManager(redisConnectionFactory) : null;
+        List<TwoLevelCache> caches = new ArrayList<>();
+        for (String name : CACHE_NAMES) {
+            Cache l2 = redisCacheManager != null ? redisCacheManager.getCache(name) : localL2Cache(name);
+            TwoLevelCache cache;
+            if (name.equals("users")) {
+                cache = new TwoLevelCache(name, newL1(), l2, cacheInvalidationBus, nodeId, meterRegistry,
+                        userCacheIndex::register, userCacheIndex::registerShared);
+                userCacheIndex.bind(cache);
+            } else if (name.equals("userResponses")) {
+                cache = new TwoLevelCache(name, newL1(), l2, cacheInvalidationBus, nodeId, meterRegistry);
+                userCacheIndex.bindResponses(cache);
+            } else {
+                // userSearch и searchResponses: записи индексируются по пользователям ответа и фильтрам контактов
+                cache = new TwoLevelCache(name, newL1(), l2, cacheInvalidationBus, nodeId, meterRegistry,
+                        userCacheIndex::registerSearch, userCacheIndex::registerSharedSearch);
+                userCacheIndex.bindSearch(cache);
+            }
+            caches.add(cache);
+        }
+        cacheInvalidationBus.subscribe(invalidation -> caches.stream()
+                .filter(cache -> cache.getName().equals(invalidation.cacheName()))
+                .forEach(cache -> cache.evictLocal(invalidation.key())));
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(caches);
+        return cacheManager;
+    }
+
+    private com.github.benmanes.caffeine.cache.Cache<Object, Object> newL1() {
+        return Caffeine.newBuilder().maximumSize(l1MaximumSize).expireAfterWrite(l1Ttl).build();
+    }
+
+    // LOCAL заменяет Redis картой в памяти: значения хранятся сериализованными и истекают через cache.l2.ttl, как в Redis
+    private Cache localL2Cache(String name) {
+        ConcurrentMap<Object, Object> store = Caffeine.newBuilder().expireAfterWrite(l2Ttl).build().asMap();
+        return new ConcurrentMapCache(name, store, true, new SerializationDelegate(getClass().getClassLoader())) {
+        };
+    }
+
+    private RedisCacheManager redisCacheManager(ObjectProvider<RedisConnectionFactory> redisConnectionFactory) {
+        // Очистка кеша через SCAN, чтобы не блокировать Redis командой KEYS
+        RedisCacheManager cacheManager = RedisCacheManager
+                .builder(RedisCacheWriter.nonLockingRedisCacheWriter(redisConnectionFactory.getObject(), BatchStrategies.scan(1000)))
+                .cacheDefaults(RedisCacheConfiguration.defaultCacheConfig().entryTtl(l2Ttl))
+                .initialCacheNames(new HashSet<>(CACHE_NAMES))
+                .build();
+        cacheManager.afterPropertiesSet();
+        return cacheManager;
+    }
+
+    // Срок индекса не меньше срока жизни записей в L2; при общем L2 его ключи индексируются в Redis
+    @Bean
+    public UserCacheIndex userCacheIndex(CacheInvalidationBus cacheInvalidationBus,
+                                         ObjectProvider<RedisConnectionFactory> redisConnectionFactory) {
+        UserKeyIndex sharedKeys = l2Mode == CacheL2Mode.REDIS
+                ? new RedisUserKeyIndex(redisTemplate(redisConnectionFactory), l2Ttl)
+                : UserKeyIndex.LOCAL;
+        return new UserCacheIndex(cacheInvalidationBus, nodeId, l2Ttl.compareTo(l1Ttl) > 0 ? l2Ttl : l1Ttl, sharedKeys);
+    }
+
+    // Ответы с одним пользователем по ID, страницы поиска по параметрам (SearchKey), как в userSearch;
+    // балансы в кеш не попадают и читаются через UserService при каждом ответе
+    @Bean
+    public EncodedResponseCache userResponseCache(CacheManager cacheManager, ObjectMapper objectMapper, UserService userService) {
+        return new EncodedResponseCache(cacheManager.getCache("userResponses"), objectMapper, userService::balances);
+    }
+
+    @Bean
+    public EncodedResponseCache searchResponseCache(CacheManager cacheManager, ObjectMapper objectMapper, UserService userService) {
+        return new EncodedResponseCache(cacheManager.getCache("searchResponses"), objectMapper, userService::balances);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "cache.l2.mode", havingValue = "REDIS")
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory redisConnectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        return container;
+    }
+
+    @Bean
+    public CacheInvalidationBus cacheInvalidationBus(
+            ObjectProvider<RedisConnectionFactory> redisConnectionFactory,
+            ObjectProvider<RedisMessageListenerContainer> listenerContainer) {
+        if (l2Mode == CacheL2Mode.LOCAL) {
+            return CacheInvalidationBus.LOCAL;
+        }
+        return new RedisCacheInvalidationBus(redisTemplate(redisConnectionFactory), listenerContainer.getObject(),
+                invalidationChannel, nodeId);
+    }
+
+    private static RedisTemplate<String, Object> redisTemplate(ObjectProvider<RedisConnectionFactory> redisConnectionFactory) {
+        RedisTemplate<String, Object> redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(redisConnectionFactory.getObject());
+        redisTemplate.setKeySerializer(new StringRedisSerializer());
+        redisTemplate.setValueSerializer(new JdkSerializationRedisSerializer());
+        redisTemplate.afterPropertiesSet();
+        return redisTemplate;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.userbankingservice.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+
+@Configuration
+public class ThreadingConfig {
+    private static final Logger logger = LoggerFactory.getLogger(ThreadingConfig.class);
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreadsRequested;
+
+    // Spring Boot включает виртуальные потоки только на JDK 21+, на более старой JVM настройка молча игнорируется
+    @EventListener(ApplicationReadyEvent.class)
+    public void logThreadingMode() {
+        if (!virtualThreadsRequested) {
+            logger.info("Запросы обрабатываются в пуле потоков платформы");
+        } else if (Runtime.version().feature() >= 21) {
+            logger.info("Запросы и задачи по расписанию обрабатываются в виртуальных потоках");
+        } else {
+            logger.warn("Виртуальные потоки требуют JDK 21+, текущая версия {}: используется пул потоков платформы",
+                    Runtime.version());
+        }
+    }
+}
@@ -1,12 +1,43 @@
 package com.example.userbankingservice.controller;
 
+import com.example.userbankingservice.service.LoginOverloadedException;
+import com.example.userbankingservice.service.TransferPendingException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
 @ControllerAdvice
 public class GlobalExceptionHandler {
+    // Заполненная очередь - 429, слишком долгое ожидание в очереди - 503; клиенту предлагается повторить позже
+    @ExceptionHandler(LoginOverloadedException.class)
+    public ResponseEntity<ErrorResponse> handleLoginOverloaded(LoginOverloadedException ex) {
+        ErrorResponse error = new ErrorResponse(ex.getMessage(), "Повторите запрос позже");
+        return ResponseEntity.status(ex.isQueueFull() ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(error);
+    }
+
+    // Свободное соединение с базой не появилось за connection-timeout: пул Hikari исчерпан
+    @ExceptionHandler({CannotCreateTransactionException.class, DataAccessResourceFailureException.class})
+    public ResponseEntity<ErrorResponse> handleConnectionUnavailable(RuntimeException ex) {
+        ErrorResponse error = new ErrorResponse("Сервис перегружен, повторите позже", "Повторите запрос позже");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(error);
+    }
+
+    // Списание зафиксировано, результат перевода будет известен позже; это не отказ, поэтому не 4xx/5xx
+    @ExceptionHandler(TransferPendingException.class)
+    public ResponseEntity<ErrorResponse> handleTransferPending(TransferPendingException ex) {
+        ErrorResponse error = new ErrorResponse(ex.getMessage(),
+                "Повторите запрос с тем же Idempotency-Key, чтобы узнать результат; повтор без ключа спишет сумму еще раз");
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(error);
+    }
+
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<ErrorResponse> handleRuntimeException(RuntimeException ex) {
         ErrorResponse error = new ErrorResponse(ex.getMessage(), "Проверьте входные данные");
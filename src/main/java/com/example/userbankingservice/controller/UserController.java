@@ -1,21 +1,31 @@
 package com.example.userbankingservice.controller;
 
-import com.example.userbankingservice.entity.User;
+import com.example.userbankingservice.cache.EncodedResponse;
+import com.example.userbankingservice.cache.EncodedResponseCache;
+import com.example.userbankingservice.cache.SearchKey;
+import com.example.userbankingservice.service.TransferBatchItem;
+import com.example.userbankingservice.service.TransferBatchMode;
+import com.example.userbankingservice.service.TransferBatchResult;
 import com.example.userbankingservice.service.UserService;
+import com.example.userbankingservice.service.UserView;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.List;
 
 @Slf4j
 @RestController
@@ -24,6 +34,21 @@ import java.time.LocalDate;
 @Tag(name = "User Management", description = "API для управления пользователями, включая поиск, обновление контактов и переводы денег")
 public class UserController {
     private final UserService userService;
+    private final EncodedResponseCache userResponseCache;
+    private final EncodedResponseCache searchResponseCache;
+
+    @Operation(summary = "Получение пользователя", description = "Возвращает пользователя с контактами и балансом; поддерживает If-None-Match")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Пользователь найден",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = UserView.class))),
+            @ApiResponse(responseCode = "304", description = "Пользователь не изменился с указанного ETag"),
+            @ApiResponse(responseCode = "400", description = "Пользователь не найден")
+    })
+    @GetMapping("/{id}")
+    public ResponseEntity<byte[]> getUser(
+            @Parameter(description = "ID пользователя", required = true, example = "1") @PathVariable Long id) {
+        return json(userResponseCache.get(id, () -> userService.getUserView(id), view -> List.of(view.id())));
+    }
 
     @Operation(summary = "Поиск пользователей по фильтрам", description = "Возвращает страницу пользователей на основе имени, email, телефона или даты рождения")
     @ApiResponses(value = {
@@ -31,14 +56,34 @@ public class UserController {
             @ApiResponse(responseCode = "400", description = "Некорректные параметры запроса")
     })
     @GetMapping("/search")
-    public Page<User> searchUsers(
+    public ResponseEntity<byte[]> searchUsers(
             @Parameter(description = "Имя пользователя для поиска", example = "John") @RequestParam(required = false) String name,
             @Parameter(description = "Email пользователя для поиска", example = "user@example.com") @RequestParam(required = false) String email,
             @Parameter(description = "Телефон пользователя для поиска", example = "+1234567890") @RequestParam(required = false) String phone,
             @Parameter(description = "Дата рождения пользователя для фильтрации", example = "2000-01-01") @RequestParam(required = false) LocalDate dateOfBirth,
             @Parameter(description = "Номер страницы (начиная с 0)", example = "0") @RequestParam(defaultValue = "0") int page,
             @Parameter(description = "Размер страницы", example = "10") @RequestParam(defaultValue = "10") int size) {
-        return userService.searchUsers(name, email, phone, dateOfBirth, page, size);
+        SearchKey key = SearchKey.page(name, email, phone, dateOfBirth, page, size);
+        return json(searchResponseCache.get(key, () -> userService.searchUsers(name, email, phone, dateOfBirth, page, size),
+                result -> ids(result.getContent())));
+    }
+
+    @Operation(summary = "Поиск пользователей по курсору", description = "Возвращает пользователей в порядке (имя, ID) без подсчета общего числа; для следующей страницы передайте nextCursor из ответа")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Успешно возвращена страница пользователей"),
+            @ApiResponse(responseCode = "400", description = "Некорректные параметры запроса или курсор")
+    })
+    @GetMapping("/search/cursor")
+    public ResponseEntity<byte[]> searchUsersByCursor(
+            @Parameter(description = "Имя пользователя для поиска", example = "John") @RequestParam(required = false) String name,
+            @Parameter(description = "Email пользователя для поиска", example = "user@example.com") @RequestParam(required = false) String email,
+            @Parameter(description = "Телефон пользователя для поиска", example = "+1234567890") @RequestParam(required = false) String phone,
+            @Parameter(description = "Дата рождения пользователя для фильтрации", example = "2000-01-01") @RequestParam(required = false) LocalDate dateOfBirth,
+            @Parameter(description = "Курсор из предыдущего ответа, для первой страницы не указывается") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Размер страницы", example = "10") @RequestParam(defaultValue = "10") int size) {
+        SearchKey key = SearchKey.cursor(name, email, phone, dateOfBirth, cursor, size);
+        return json(searchResponseCache.get(key, () -> userService.searchUsersByCursor(name, email, phone, dateOfBirth, cursor, size),
+                slice -> ids(slice.content())));
     }
 
     @Operation(summary = "Обновление email пользователя", description = "Добавляет новый email для авторизованного пользователя")
@@ -102,9 +147,40 @@ public class UserController {
     @PostMapping("/transfers")
     public void transferMoney(
             @Parameter(description = "ID авторизованного пользователя (отправителя)", required = true, example = "1") @AuthenticationPrincipal Long fromUserId,
+            @Parameter(description = "Ключ идемпотентности: повтор с тем же ключом и параметрами возвращает результат первого запроса", example = "3f1c9a52-7d1e-4b8a-9a55-0c2f4e6b8d10")
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @Parameter(description = "Запрос на перевод", required = true) @RequestBody TransferRequest request) {
         log.info("Переовод от пользователя: {}", fromUserId);
-        userService.transferMoney(fromUserId, request.getToUserId(), request.getAmount());
+        userService.transferMoney(fromUserId, request.getToUserId(), request.getAmount(), idempotencyKey);
+    }
+
+    @Operation(summary = "Пакетный перевод денег", description = "Выполняет переводы от авторизованного пользователя нескольким получателям в одной транзакции. " +
+            "ATOMIC - все переводы или ни одного, BEST_EFFORT - невыполнимые переводы отклоняются, остальные выполняются")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Пакет обработан, результат по каждому переводу в порядке запроса"),
+            @ApiResponse(responseCode = "400", description = "Пакет отклонен: некорректный размер или, в режиме ATOMIC, невыполнимый перевод"),
+            @ApiResponse(responseCode = "401", description = "Не авторизован")
+    })
+    @PostMapping("/transfers/batch")
+    public TransferBatchResult transferBatch(
+            @Parameter(description = "ID авторизованного пользователя (отправителя)", required = true, example = "1") @AuthenticationPrincipal Long fromUserId,
+            @Parameter(description = "Пакет переводов", required = true) @RequestBody BatchTransferRequest request) {
+        log.info("Пакетный перевод от пользователя: {}", fromUserId);
+        TransferBatchMode mode = request.getMode() != null ? request.getMode() : TransferBatchMode.ATOMIC;
+        return userService.transferBatch(fromUserId, request.getItems(), mode);
+    }
+
+    // Тело отдается готовыми байтами; при совпадении If-None-Match Spring возвращает 304 без тела
+    private static ResponseEntity<byte[]> json(EncodedResponse response) {
+        return ResponseEntity.ok()
+                .eTag(response.etag())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(response.body());
+    }
+
+    // Пользователи страницы в порядке ответа: их балансы подставляются в закешированное тело
+    private static List<Long> ids(List<UserView> views) {
+        return views.stream().map(UserView::id).toList();
     }
 
     @Data
@@ -115,4 +191,13 @@ public class UserController {
         @Parameter(description = "Сумма перевода", required = true, example = "100.00")
         private BigDecimal amount;
     }
+
+    @Data
+    public static class BatchTransferRequest {
+        @Parameter(description = "Режим пакета: ATOMIC (по умолчанию) или BEST_EFFORT", example = "ATOMIC")
+        private TransferBatchMode mode = TransferBatchMode.ATOMIC;
+
+        @Parameter(description = "Переводы: ID получателя и сумма", required = true)
+        private List<TransferBatchItem> items;
+    }
 }
\ No newline at end of file
@@ -1,26 +1,54 @@
 package com.example.userbankingservice.entity;
 
+import com.example.userbankingservice.service.AccrualPolicy;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.ToString;
 
-import java.math.BigDecimal;
-
 @Entity
 @Table(name = "account")
 @Data
 @ToString(exclude = "user")
 public class Account {
     @Id
+    @BankingId
     private Long id;
 
     @OneToOne
     @JoinColumn(name = "user_id", unique = true)
     private User user;
 
+    // Балансы в копейках, в базе DECIMAL(19,2)
+    @Convert(converter = MoneyConverter.class)
     @Column(precision = 19, scale = 2)
-    private BigDecimal balance;
+    private long balance;
 
+    @Convert(converter = MoneyConverter.class)
     @Column(name = "initial_balance", precision = 19, scale = 2)
-    private BigDecimal initialBalance;
+    private long initialBalance;
+
+    @Column(name = "accrual_tick")
+    private Long accrualTick;
+
+    // Период, за который уже применено периодическое начисление
+    @Column(name = "last_accrued_tick")
+    private Long lastAccruedTick;
+
+    @Column(nullable = false)
+    private boolean capped;
+
+    // Проверяется при записи: оптимистичный перевод откатывается, если счет изменили после чтения
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
+    // Число полос баланса; меняется только BalanceStriping отдельным запросом
+    @Column(nullable = false, insertable = false, updatable = false)
+    private int stripes;
+
+    @PrePersist
+    @PreUpdate
+    void refreshCapped() {
+        capped = AccrualPolicy.isCapped(balance, initialBalance);
+    }
 }
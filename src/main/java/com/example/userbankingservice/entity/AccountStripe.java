@@ -0,0 +1,33 @@
+package com.example.userbankingservice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+@Entity
+@Table(name = "account_stripe")
+@IdClass(AccountStripe.Key.class)
+@Data
+public class AccountStripe {
+    @Id
+    @Column(name = "account_id")
+    private Long accountId;
+
+    @Id
+    private Integer stripe;
+
+    @Column(precision = 19, scale = 2, nullable = false)
+    private BigDecimal balance;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long accountId;
+        private Integer stripe;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.userbankingservice.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "accrual_lease")
+@Data
+public class AccrualLease {
+    @Id
+    @Column(name = "partition_id")
+    private Integer partitionId;
+
+    @Column(length = 200)
+    private String owner;
+
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,18 @@
+package com.example.userbankingservice.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "accrual_node")
+@Data
+public class AccrualNode {
+    @Id
+    @Column(name = "node_id", length = 200)
+    private String nodeId;
+
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;
+}
@@ -0,0 +1,15 @@
+package com.example.userbankingservice.entity;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Первичный ключ, выдаваемый BankingIdGenerator; способ выдачи задается banking.id.generator
+@IdGeneratorType(BankingIdGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface BankingId {
+}
@@ -0,0 +1,91 @@
+package com.example.userbankingservice.entity;
+
+import org.hibernate.HibernateException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.jdbc.spi.JdbcCoordinator;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Member;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.EnumSet;
+import java.util.Map;
+
+// Выдает идентификатор до INSERT, поэтому Hibernate может объединять вставки в JDBC-пакеты
+public class BankingIdGenerator implements BeforeExecutionGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(BankingIdGenerator.class);
+    private static final String NEXT_BLOCK_SQL = "SELECT nextval('banking_id_seq'), s.increment_by FROM pg_sequences s "
+            + "WHERE s.schemaname = current_schema() AND s.sequencename = 'banking_id_seq'";
+
+    private final IdGeneratorMode mode;
+    private final SnowflakeIdAllocator snowflakeIdAllocator;
+    private final PooledIdAllocator pooledIdAllocator;
+
+    public BankingIdGenerator(BankingId config, Member member, CustomIdGeneratorCreationContext context) {
+        Map<String, Object> settings = context.getServiceRegistry().getService(ConfigurationService.class).getSettings();
+        this.mode = IdGeneratorMode.valueOf(String.valueOf(settings.getOrDefault("banking.id.generator", "SEQUENCE")));
+        if (mode == IdGeneratorMode.SNOWFLAKE) {
+            Object nodeId = settings.get("banking.id.node-id");
+            this.snowflakeIdAllocator = new SnowflakeIdAllocator(
+                    nodeId == null || nodeId.toString().isEmpty() ? defaultNodeId() : Integer.parseInt(nodeId.toString()));
+            this.pooledIdAllocator = null;
+        } else {
+            this.snowflakeIdAllocator = null;
+            this.pooledIdAllocator = new PooledIdAllocator();
+        }
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue, EventType eventType) {
+        if (mode == IdGeneratorMode.SNOWFLAKE) {
+            return snowflakeIdAllocator.next();
+        }
+        return pooledIdAllocator.next(() -> nextBlock(session));
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+
+    // Размер блока берется из шага последовательности, чтобы узлы не могли выдать пересекающиеся блоки
+    private PooledIdAllocator.Block nextBlock(SharedSessionContractImplementor session) {
+        JdbcCoordinator jdbcCoordinator = session.getJdbcCoordinator();
+        PreparedStatement statement = jdbcCoordinator.getStatementPreparer().prepareStatement(NEXT_BLOCK_SQL);
+        try {
+            ResultSet resultSet = jdbcCoordinator.getResultSetReturn().extract(statement, NEXT_BLOCK_SQL);
+            if (!resultSet.next()) {
+                throw new HibernateException("Последовательность banking_id_seq не найдена");
+            }
+            return new PooledIdAllocator.Block(resultSet.getLong(1), resultSet.getInt(2));
+        } catch (SQLException e) {
+            throw session.getJdbcServices().getSqlExceptionHelper()
+                    .convert(e, "Не удалось зарезервировать блок идентификаторов", NEXT_BLOCK_SQL);
+        } finally {
+            jdbcCoordinator.getLogicalConnection().getResourceRegistry().release(statement);
+            jdbcCoordinator.afterStatementExecution();
+        }
+    }
+
+    // Номер узла должен быть уникальным в кластере; без banking.id.node-id он выводится из имени хоста и PID
+    private static int defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "node";
+        }
+        int nodeId = Math.floorMod((host + "-" + ProcessHandle.current().pid()).hashCode(), SnowflakeIdAllocator.MAX_NODE_ID + 1);
+        logger.warn("banking.id.node-id не задан, номер узла выбран по имени хоста: {}", nodeId);
+        return nodeId;
+    }
+}
@@ -8,6 +8,7 @@ import lombok.Data;
 @Data
 public class EmailData {
     @Id
+    @BankingId
     private Long id;
 
     @ManyToOne
@@ -0,0 +1,6 @@
+package com.example.userbankingservice.entity;
+
+public enum IdGeneratorMode {
+    SEQUENCE,
+    SNOWFLAKE
+}
@@ -0,0 +1,21 @@
+package com.example.userbankingservice.entity;
+
+import com.example.userbankingservice.service.Money;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.math.BigDecimal;
+
+// Копейки в сущностях <-> DECIMAL(19,2) в базе
+@Converter
+public class MoneyConverter implements AttributeConverter<Long, BigDecimal> {
+    @Override
+    public BigDecimal convertToDatabaseColumn(Long amount) {
+        return amount != null ? Money.toDecimal(amount) : null;
+    }
+
+    @Override
+    public Long convertToEntityAttribute(BigDecimal amount) {
+        return amount != null ? Money.fromDecimal(amount) : null;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.userbankingservice.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "pending_transfer")
+@Data
+public class PendingTransfer {
+    @Id
+    @BankingId
+    private Long id;
+
+    @Column(name = "from_user_id", nullable = false, updatable = false)
+    private Long fromUserId;
+
+    @Column(name = "to_user_id", nullable = false, updatable = false)
+    private Long toUserId;
+
+    // Суммы в копейках
+    @Convert(converter = MoneyConverter.class)
+    @Column(precision = 19, scale = 2, nullable = false, updatable = false)
+    private long amount;
+
+    @Convert(converter = MoneyConverter.class)
+    @Column(name = "from_balance_before", precision = 19, scale = 2, nullable = false, updatable = false)
+    private long fromBalanceBefore;
+
+    @Convert(converter = MoneyConverter.class)
+    @Column(name = "from_balance_after", precision = 19, scale = 2, nullable = false, updatable = false)
+    private long fromBalanceAfter;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 10, nullable = false)
+    private State state;
+
+    // Причина возврата, которую получит клиент
+    @Column(length = 500)
+    private String error;
+
+    // Ключ идемпотентности отправителя; завершается вместе со строкой
+    @Column(name = "idempotency_key", length = 100, updatable = false)
+    private String idempotencyKey;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    public enum State {
+        // Списание зафиксировано, сумма ждет зачисления получателю
+        CREDIT,
+        // Зачисление не выполнено, сумма ждет возврата отправителю
+        REFUND
+    }
+}
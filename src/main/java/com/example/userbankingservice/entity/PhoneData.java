@@ -8,6 +8,7 @@ import lombok.Data;
 @Data
 public class PhoneData {
     @Id
+    @BankingId
     private Long id;
 
     @ManyToOne
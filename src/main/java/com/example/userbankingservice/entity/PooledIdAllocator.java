@@ -0,0 +1,29 @@
+package com.example.userbankingservice.entity;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// Pooled-lo: из последовательности берется начало блока, идентификаторы блока выдаются из памяти
+public final class PooledIdAllocator {
+    private final ReentrantLock lock = new ReentrantLock();
+    private long next;
+    private long end;
+
+    public long next(Supplier<Block> blockSource) {
+        lock.lock();
+        try {
+            if (next >= end) {
+                // Остальные потоки ждут, пока один из них резервирует следующий блок
+                Block block = blockSource.get();
+                next = block.start();
+                end = block.start() + block.size();
+            }
+            return next++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public record Block(long start, int size) {
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.userbankingservice.entity;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Идентификатор: 41 бит времени от EPOCH в мс, 10 бит номера узла, 12 бит счетчика внутри миллисекунды
+public final class SnowflakeIdAllocator {
+    static final long EPOCH = 1704067200000L; // 2024-01-01T00:00:00Z
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long nodeId;
+    private final LongSupplier clock;
+    // Время и счетчик последнего выданного идентификатора: (мс от EPOCH << SEQUENCE_BITS) | счетчик
+    private final AtomicLong state = new AtomicLong();
+
+    public SnowflakeIdAllocator(int nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    SnowflakeIdAllocator(int nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Номер узла должен быть в диапазоне 0.." + MAX_NODE_ID);
+        }
+        this.nodeId = nodeId;
+        this.clock = clock;
+    }
+
+    public long next() {
+        while (true) {
+            long current = state.get();
+            long now = (clock.getAsLong() - EPOCH) << SEQUENCE_BITS;
+            // Переполнение счетчика и отставание часов переносят выдачу на следующую миллисекунду
+            // вместо ожидания, поэтому идентификаторы узла строго возрастают
+            long next = now > current ? now : current + 1;
+            if (state.compareAndSet(current, next)) {
+                long millis = next >>> SEQUENCE_BITS;
+                return (millis << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.userbankingservice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "transfer_idempotency")
+@IdClass(TransferIdempotency.Key.class)
+@Data
+public class TransferIdempotency {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Column(name = "idempotency_key", length = 100)
+    private String idempotencyKey;
+
+    @Column(length = 200, nullable = false)
+    private String fingerprint;
+
+    // Сообщение отказа; null - перевод выполнен
+    @Column(length = 500)
+    private String error;
+
+    // Перевод SHARDED списан, но еще не зачислен или не возвращен: результат пока неизвестен
+    @Column(nullable = false)
+    private boolean pending;
+
+    @Column(name = "created_at", insertable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long userId;
+        private String idempotencyKey;
+    }
+}
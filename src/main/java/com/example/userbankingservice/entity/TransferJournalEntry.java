@@ -0,0 +1,46 @@
+package com.example.userbankingservice.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "transfer_journal")
+@Data
+public class TransferJournalEntry {
+    @Id
+    @BankingId
+    private Long id;
+
+    @Column(name = "from_user_id", nullable = false, updatable = false)
+    private Long fromUserId;
+
+    @Column(name = "to_user_id", nullable = false, updatable = false)
+    private Long toUserId;
+
+    // Суммы в копейках
+    @Convert(converter = MoneyConverter.class)
+    @Column(precision = 19, scale = 2, nullable = false, updatable = false)
+    private long amount;
+
+    @Convert(converter = MoneyConverter.class)
+    @Column(name = "from_balance_before", precision = 19, scale = 2, nullable = false, updatable = false)
+    private long fromBalanceBefore;
+
+    @Convert(converter = MoneyConverter.class)
+    @Column(name = "from_balance_after", precision = 19, scale = 2, nullable = false, updatable = false)
+    private long fromBalanceAfter;
+
+    // Не заполняются для получателя с полосами баланса
+    @Convert(converter = MoneyConverter.class)
+    @Column(name = "to_balance_before", precision = 19, scale = 2, updatable = false)
+    private Long toBalanceBefore;
+
+    @Convert(converter = MoneyConverter.class)
+    @Column(name = "to_balance_after", precision = 19, scale = 2, updatable = false)
+    private Long toBalanceAfter;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
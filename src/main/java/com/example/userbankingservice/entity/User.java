@@ -13,6 +13,7 @@ import java.util.List;
 @ToString(exclude = "account")
 public class User {
     @Id
+    @BankingId
     private Long id;
 
     @Column(length = 500)
@@ -0,0 +1,10 @@
+package com.example.userbankingservice.repository;
+
+import java.math.BigDecimal;
+
+// Баланс счета после изменения, из RETURNING
+public interface AccountBalanceRow {
+    Long getUserId();
+
+    BigDecimal getBalance();
+}
@@ -1,15 +1,109 @@
 package com.example.userbankingservice.repository;
 
 import com.example.userbankingservice.entity.Account;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import jakarta.persistence.LockModeType;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface AccountRepository extends JpaRepository<Account, Long> {
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT a FROM Account a WHERE a.user.id = :userId")
     Account findByUserIdForUpdate(Long userId);
+
+    // Без блокировки: для оптимистичного перевода, версия проверяется при записи
+    @Query("SELECT a FROM Account a WHERE a.user.id IN :userIds")
+    List<Account> findAllByUserIdIn(Collection<Long> userIds);
+
+    // Блокирует все счета одним запросом в порядке возрастания id
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.user.id IN :userIds ORDER BY a.id")
+    List<Account> findAllByUserIdInForUpdate(Collection<Long> userIds);
+
+    // Счета рабочего набора начисления из диапазона (fromId, toId] в партициях узла (id mod partitions входит
+    // в owned), еще не получившие начисление за период tick
+    @Query("SELECT a FROM Account a WHERE a.id > :fromId AND a.id <= :toId AND a.capped = false " +
+            "AND mod(a.id, :partitions) IN :owned AND (a.lastAccruedTick IS NULL OR a.lastAccruedTick < :tick) ORDER BY a.id")
+    List<Account> findGrowingInRange(long fromId, long toId, int partitions, Collection<Integer> owned, long tick);
+
+    // Верхняя граница следующего диапазона из не более чем limit счетов рабочего набора после afterId
+    @Query(value = "SELECT max(id) FROM (SELECT id FROM account WHERE id > :afterId AND NOT capped " +
+            "AND mod(id, :partitions) IN (:owned) ORDER BY id LIMIT :limit) chunk",
+            nativeQuery = true)
+    Long findChunkUpperBound(long afterId, int limit, int partitions, Collection<Integer> owned);
+
+    // Начисление 10% с ограничением 2.07 от начального баланса для счетов рабочего набора из диапазона
+    // (fromId, toId], еще не получивших начисление за период tick; строки, значение которых не меняется,
+    // не перезаписываются, кроме счетов на максимуме, которые при этом выходят из рабочего набора
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE account SET balance = ROUND(LEAST(balance * 1.10, initial_balance * 2.07), 2), " +
+            "capped = (ROUND(LEAST(balance * 1.10, initial_balance * 2.07), 2) = ROUND(initial_balance * 2.07, 2)), " +
+            "accrual_tick = NULL, last_accrued_tick = :tick, version = version + 1 " +
+            "WHERE id > :fromId AND id <= :toId AND NOT capped AND mod(id, :partitions) IN (:owned) " +
+            "AND (last_accrued_tick IS NULL OR last_accrued_tick < :tick) " +
+            "AND (balance <> ROUND(LEAST(balance * 1.10, initial_balance * 2.07), 2) " +
+            "OR balance = ROUND(initial_balance * 2.07, 2))",
+            nativeQuery = true)
+    int accrueRange(long fromId, long toId, int partitions, Collection<Integer> owned, long tick);
+
+    // Счета рабочего набора, начисления по которым не материализованы с периода staleTick
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.id > :afterId AND a.capped = false " +
+            "AND (a.accrualTick IS NULL OR a.accrualTick < :staleTick) " +
+            "AND mod(a.id, :partitions) IN :owned ORDER BY a.id")
+    List<Account> findStaleAccrualsForUpdate(long afterId, long staleTick, int partitions, Collection<Integer> owned,
+                                             Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Account a SET a.accrualTick = :tick WHERE a.accrualTick IS NULL")
+    int startAccrualTracking(long tick);
+
+    @Query("SELECT a FROM Account a WHERE a.stripes > 0")
+    List<Account> findStriped();
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Account a SET a.stripes = :stripes WHERE a.id = :id")
+    int updateStripes(Long id, int stripes);
+
+    // Перевод одним запросом: оба счета блокируются в порядке возрастания id, затем один UPDATE списывает
+    // и зачисляет сумму, только если найдены оба счета и у отправителя достаточно средств.
+    // Возвращает новые балансы обоих счетов или пустой список при отказе.
+    // Запрос изменяет данные, но без @Modifying намеренно: @Modifying допускает только int/void, а здесь нужны
+    // строки RETURNING. Hibernate выполняет его как выборку (сессия перед ним сбрасывается), контекст
+    // персистентности не очищается: вызывающий код не держит загруженных сущностей Account этих счетов
+    // и берет балансы из результата
+    @Transactional
+    @Query(value = "WITH locked AS (SELECT id, user_id, balance FROM account " +
+            "WHERE user_id IN (:fromUserId, :toUserId) ORDER BY id FOR UPDATE) " +
+            "UPDATE account a SET balance = a.balance + d.delta, " +
+            "capped = (a.balance + d.delta = ROUND(a.initial_balance * 2.07, 2)), " +
+            "accrual_tick = NULL, version = a.version + 1 " +
+            "FROM (SELECT id, CASE WHEN user_id = :fromUserId THEN -:amount ELSE :amount END AS delta FROM locked) d " +
+            "WHERE a.id = d.id AND (SELECT count(*) FROM locked) = 2 " +
+            "AND EXISTS (SELECT 1 FROM locked WHERE user_id = :fromUserId AND balance >= :amount) " +
+            "RETURNING a.user_id AS \"userId\", a.balance AS \"balance\"",
+            nativeQuery = true)
+    List<AccountBalanceRow> transferInStatement(Long fromUserId, Long toUserId, BigDecimal amount);
+
+    // Условное списание одним запросом; пустой список - счета нет или недостаточно средств.
+    // Изменяет данные без @Modifying по той же причине, что и transferInStatement: нужен баланс из RETURNING
+    @Transactional
+    @Query(value = "UPDATE account SET balance = balance - :amount, " +
+            "capped = (balance - :amount = ROUND(initial_balance * 2.07, 2)), " +
+            "accrual_tick = NULL, version = version + 1 " +
+            "WHERE user_id = :userId AND balance >= :amount RETURNING balance",
+            nativeQuery = true)
+    List<BigDecimal> debitIfSufficient(Long userId, BigDecimal amount);
 }
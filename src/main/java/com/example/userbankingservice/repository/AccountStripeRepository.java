@@ -0,0 +1,66 @@
+package com.example.userbankingservice.repository;
+
+import com.example.userbankingservice.entity.AccountStripe;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface AccountStripeRepository extends JpaRepository<AccountStripe, AccountStripe.Key> {
+    // Зачисление в случайную полосу, не заблокированную другими транзакциями; 0 - свободных полос нет
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE account_stripe SET balance = balance + :amount " +
+            "WHERE account_id = :accountId AND stripe = (SELECT stripe FROM account_stripe " +
+            "WHERE account_id = :accountId ORDER BY random() LIMIT 1 FOR UPDATE SKIP LOCKED)",
+            nativeQuery = true)
+    int creditFreeStripe(Long accountId, BigDecimal amount);
+
+    // Зачисление в заданную полосу с ожиданием ее блокировки
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE account_stripe SET balance = balance + :amount WHERE account_id = :accountId AND stripe = :stripe",
+            nativeQuery = true)
+    int creditStripe(Long accountId, int stripe, BigDecimal amount);
+
+    // Блокирует все полосы счета в порядке номера, обнуляет их и возвращает сумму, перенесенную в счет.
+    // CTE изменяет данные, но запрос без @Modifying намеренно: @Modifying допускает только int/void, а нужна сумма.
+    // Hibernate выполняет его как выборку, контекст персистентности не очищается: сущности AccountStripe
+    // не загружаются (полосы читаются только агрегатами), поэтому устаревших копий в нем нет
+    @Transactional
+    @Query(value = "WITH old AS (SELECT stripe, balance FROM account_stripe WHERE account_id = :accountId " +
+            "ORDER BY stripe FOR UPDATE), " +
+            "drained AS (UPDATE account_stripe s SET balance = 0 FROM old " +
+            "WHERE s.account_id = :accountId AND s.stripe = old.stripe AND old.balance <> 0) " +
+            "SELECT COALESCE(SUM(balance), 0) FROM old",
+            nativeQuery = true)
+    BigDecimal drain(Long accountId);
+
+    @Query("SELECT COALESCE(SUM(s.balance), 0) FROM AccountStripe s WHERE s.accountId = :accountId")
+    BigDecimal sumByAccountId(Long accountId);
+
+    // Суммы полос страницы счетов одним запросом
+    @Query("SELECT s.accountId AS accountId, SUM(s.balance) AS total FROM AccountStripe s " +
+            "WHERE s.accountId IN :accountIds GROUP BY s.accountId")
+    List<AccountStripeTotalRow> findTotalsByAccountIdIn(Collection<Long> accountIds);
+
+    // Создает недостающие полосы 0..stripes-1 с нулевым балансом
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO account_stripe (account_id, stripe, balance) " +
+            "SELECT :accountId, s, 0 FROM generate_series(0, :stripes - 1) s ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    int createStripes(Long accountId, int stripes);
+
+    // Удаляет полосы с номером от stripes; перед удалением полосы должны быть обнулены
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM AccountStripe s WHERE s.accountId = :accountId AND s.stripe >= :stripes")
+    int deleteFromStripe(Long accountId, int stripes);
+}
@@ -0,0 +1,10 @@
+package com.example.userbankingservice.repository;
+
+import java.math.BigDecimal;
+
+// Сумма полос баланса счета
+public interface AccountStripeTotalRow {
+    Long getAccountId();
+
+    BigDecimal getTotal();
+}
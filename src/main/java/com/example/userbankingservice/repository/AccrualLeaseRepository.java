@@ -0,0 +1,35 @@
+package com.example.userbankingservice.repository;
+
+import com.example.userbankingservice.entity.AccrualLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+
+@Repository
+public interface AccrualLeaseRepository extends JpaRepository<AccrualLease, Integer> {
+    // Захватывает или продлевает аренду партиции, если она свободна, истекла или уже принадлежит owner
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO accrual_lease (partition_id, owner, expires_at) " +
+            "VALUES (:partitionId, :owner, now() + :ttlMs * interval '1 millisecond') " +
+            "ON CONFLICT (partition_id) DO UPDATE SET owner = EXCLUDED.owner, expires_at = EXCLUDED.expires_at " +
+            "WHERE accrual_lease.owner IS NULL OR accrual_lease.owner = EXCLUDED.owner " +
+            "OR accrual_lease.expires_at < now()",
+            nativeQuery = true)
+    int claim(int partitionId, String owner, long ttlMs);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE AccrualLease l SET l.owner = NULL, l.expiresAt = NULL " +
+            "WHERE l.owner = :owner AND l.partitionId NOT IN :keep")
+    int releaseExcept(String owner, Collection<Integer> keep);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE AccrualLease l SET l.owner = NULL, l.expiresAt = NULL WHERE l.owner = :owner")
+    int releaseAll(String owner);
+}
@@ -0,0 +1,32 @@
+package com.example.userbankingservice.repository;
+
+import com.example.userbankingservice.entity.AccrualNode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface AccrualNodeRepository extends JpaRepository<AccrualNode, String> {
+    // Время берется из базы, чтобы расхождение часов узлов не влияло на состав кластера
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO accrual_node (node_id, heartbeat_at) VALUES (:nodeId, now()) " +
+            "ON CONFLICT (node_id) DO UPDATE SET heartbeat_at = now()",
+            nativeQuery = true)
+    int heartbeat(String nodeId);
+
+    @Query(value = "SELECT node_id FROM accrual_node " +
+            "WHERE heartbeat_at > now() - :ttlMs * interval '1 millisecond' ORDER BY node_id",
+            nativeQuery = true)
+    List<String> findLiveNodeIds(long ttlMs);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM accrual_node WHERE heartbeat_at < now() - :ttlMs * interval '1 millisecond'",
+            nativeQuery = true)
+    int deleteDeadNodes(long ttlMs);
+}
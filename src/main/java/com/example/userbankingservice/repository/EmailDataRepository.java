@@ -2,8 +2,11 @@ package com.example.userbankingservice.repository;
 
 import com.example.userbankingservice.entity.EmailData;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,4 +14,14 @@ public interface EmailDataRepository extends JpaRepository<EmailData, Long> {
     boolean existsByEmail(String email);
     Optional<EmailData> findByEmail(String email);
     long countByUserId(Long userId);
+
+    @Query("SELECT e.user.id AS userId, e.email AS contact FROM EmailData e")
+    List<UserContactRow> findAllContactRows();
+
+    // Контакты страницы пользователей одним запросом
+    @Query("SELECT e.user.id AS userId, e.email AS contact FROM EmailData e WHERE e.user.id IN :userIds ORDER BY e.id")
+    List<UserContactRow> findContactRowsByUserIdIn(Collection<Long> userIds);
+
+    @Query("SELECT e.email FROM EmailData e WHERE e.user.id = :userId")
+    List<String> findValuesByUserId(Long userId);
 }
\ No newline at end of file
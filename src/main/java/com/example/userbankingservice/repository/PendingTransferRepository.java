@@ -0,0 +1,29 @@
+package com.example.userbankingservice.repository;
+
+import com.example.userbankingservice.entity.PendingTransfer;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface PendingTransferRepository extends JpaRepository<PendingTransfer, Long> {
+    List<PendingTransfer> findByCreatedAtBeforeOrderByCreatedAt(LocalDateTime createdBefore, Pageable pageable);
+
+    // Вызывается первым в транзакции зачисления или возврата: строка блокируется до фиксации,
+    // 0 - ее уже завершил другой поток или узел, деньги двигать нельзя
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM PendingTransfer p WHERE p.id = :id AND p.state = :state")
+    int deleteInState(Long id, PendingTransfer.State state);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE PendingTransfer p SET p.state = :to, p.error = :error WHERE p.id = :id AND p.state = :from")
+    int changeState(Long id, PendingTransfer.State from, PendingTransfer.State to, String error);
+}
@@ -2,8 +2,11 @@ package com.example.userbankingservice.repository;
 
 import com.example.userbankingservice.entity.PhoneData;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,4 +14,14 @@ public interface PhoneDataRepository extends JpaRepository<PhoneData, Long> {
     boolean existsByPhone(String phone);
     Optional<PhoneData> findByPhone(String phone);
     long countByUserId(Long userId);
+
+    @Query("SELECT p.user.id AS userId, p.phone AS contact FROM PhoneData p")
+    List<UserContactRow> findAllContactRows();
+
+    // Контакты страницы пользователей одним запросом
+    @Query("SELECT p.user.id AS userId, p.phone AS contact FROM PhoneData p WHERE p.user.id IN :userIds ORDER BY p.id")
+    List<UserContactRow> findContactRowsByUserIdIn(Collection<Long> userIds);
+
+    @Query("SELECT p.phone FROM PhoneData p WHERE p.user.id = :userId")
+    List<String> findValuesByUserId(Long userId);
 }
@@ -0,0 +1,40 @@
+package com.example.userbankingservice.repository;
+
+import com.example.userbankingservice.entity.TransferIdempotency;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface TransferIdempotencyRepository extends JpaRepository<TransferIdempotency, TransferIdempotency.Key> {
+    // Возвращает 0, если ключ уже записан. Если ключ вставлен еще не зафиксированной транзакцией,
+    // вставка ждет ее завершения и затем либо проходит (откат), либо возвращает 0 (фиксация)
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO transfer_idempotency (user_id, idempotency_key, fingerprint, error) " +
+            "VALUES (:userId, :idempotencyKey, :fingerprint, :error) ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    int insertIfAbsent(Long userId, String idempotencyKey, String fingerprint, String error);
+
+    // Ключ перевода SHARDED, вставляется в транзакции списания
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO transfer_idempotency (user_id, idempotency_key, fingerprint, pending) " +
+            "VALUES (:userId, :idempotencyKey, :fingerprint, TRUE) ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    int insertPendingIfAbsent(Long userId, String idempotencyKey, String fingerprint);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE TransferIdempotency t SET t.pending = false, t.error = :error " +
+            "WHERE t.userId = :userId AND t.idempotencyKey = :idempotencyKey AND t.pending = true")
+    int complete(Long userId, String idempotencyKey, String error);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM transfer_idempotency WHERE created_at < now() - :ttlMs * interval '1 millisecond'",
+            nativeQuery = true)
+    int deleteOlderThan(long ttlMs);
+}
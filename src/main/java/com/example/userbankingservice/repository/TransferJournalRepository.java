@@ -0,0 +1,9 @@
+package com.example.userbankingservice.repository;
+
+import com.example.userbankingservice.entity.TransferJournalEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TransferJournalRepository extends JpaRepository<TransferJournalEntry, Long> {
+}
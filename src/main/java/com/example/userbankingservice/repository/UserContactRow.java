@@ -0,0 +1,8 @@
+package com.example.userbankingservice.repository;
+
+// Email или телефон пользователя для индекса поиска
+public interface UserContactRow {
+    Long getUserId();
+
+    String getContact();
+}
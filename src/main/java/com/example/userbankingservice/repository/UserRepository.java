@@ -1,10 +1,36 @@
 package com.example.userbankingservice.repository;
 
 import com.example.userbankingservice.entity.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificationExecutor<User> {
+    // Счет загружается в том же запросе, иначе обратная связь OneToOne дает отдельный запрос на каждого пользователя
+    @Override
+    @EntityGraph(attributePaths = "account")
+    List<User> findAllById(Iterable<Long> ids);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.password = :password WHERE u.id = :id")
+    int updatePassword(Long id, String password);
+
+    // Хеш читается только при входе и не попадает в кеш users
+    @Query("SELECT u.password FROM User u WHERE u.id = :id")
+    Optional<String> findPasswordById(Long id);
+
+    @Query("SELECT u.id AS id, u.name AS name, u.dateOfBirth AS dateOfBirth FROM User u")
+    List<UserSearchRow> findAllSearchRows();
+
+    @Query("SELECT u.id AS id, u.name AS name, u.dateOfBirth AS dateOfBirth FROM User u WHERE u.id = :id")
+    Optional<UserSearchRow> findSearchRowById(Long id);
 }
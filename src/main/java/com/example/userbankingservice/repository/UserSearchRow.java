@@ -0,0 +1,12 @@
+package com.example.userbankingservice.repository;
+
+import java.time.LocalDate;
+
+// Поля пользователя, по которым строится индекс поиска
+public interface UserSearchRow {
+    Long getId();
+
+    String getName();
+
+    LocalDate getDateOfBirth();
+}
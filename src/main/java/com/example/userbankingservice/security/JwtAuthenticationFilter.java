@@ -1,20 +1,28 @@
 package com.example.userbankingservice.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -22,6 +30,12 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import javax.crypto.SecretKey;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
@@ -30,8 +44,28 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final String jwtSecret;
     private final UserDetailsService userDetailsService;
     private final SecretKey signingKey;
+    // Парсер неизменяем и потокобезопасен, создается один раз
+    private final JwtParser parser;
+    // Дайджест токена -> проверенный пользователь; запись живет до exp токена
+    private final Cache<String, VerifiedToken> verifiedTokens;
+    private final Timer verificationTimer;
 
-    public JwtAuthenticationFilter(@Value("${jwt.secret}") String jwtSecret, UserDetailsService userDetailsService) {
+    @Autowired
+    public JwtAuthenticationFilter(@Value("${jwt.secret}") String jwtSecret,
+                                   @Value("${jwt.cache.maximum-size:10000}") long cacheMaximumSize,
+                                   @Value("${jwt.cache.max-ttl:1h}") Duration cacheMaxTtl,
+                                   UserDetailsService userDetailsService,
+                                   MeterRegistry meterRegistry) {
+        this(jwtSecret, cacheMaximumSize, cacheMaxTtl, userDetailsService, meterRegistry, Ticker.systemTicker());
+    }
+
+    // Ticker задает время жизни записей кеша; в тестах его можно сдвигать без ожидания
+    JwtAuthenticationFilter(String jwtSecret,
+                            long cacheMaximumSize,
+                            Duration cacheMaxTtl,
+                            UserDetailsService userDetailsService,
+                            MeterRegistry meterRegistry,
+                            Ticker ticker) {
         this.jwtSecret = jwtSecret;
         this.userDetailsService = userDetailsService;
 
@@ -47,28 +81,29 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         this.signingKey = Keys.hmacShaKeyFor(keyBytes);
+        this.parser = Jwts.parser().verifyWith(signingKey).build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaximumSize)
+                .expireAfter(new TokenExpiry(cacheMaxTtl.toNanos()))
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwtTokens");
+        this.verificationTimer = Timer.builder("jwt.verification")
+                .description("Проверка подписи и разбор JWT при промахе кеша")
+                .register(meterRegistry);
     }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
             throws ServletException, IOException {
         String header = request.getHeader("Authorization");
-        logger.debug("Authorization header: {}", header);
 
         if (header != null && header.startsWith("Bearer ")) {
             String token = header.substring(7);
-            logger.debug("Extracted token: {}", token);
 
             try {
-                Claims claims = Jwts.parser()
-                        .verifyWith(signingKey)
-                        .build()
-                        .parseClaimsJws(token)
-                        .getPayload();
-
-                Long userId = claims.get("userId", Long.class);
-                logger.debug("Extracted userId from token: {}", userId);
-
+                Long userId = authenticate(token);
                 if (userId != null) {
                     // Создаем аутентификацию с userId как Principal
                     UsernamePasswordAuthenticationToken authentication =
@@ -96,4 +131,52 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         chain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    // Повторный токен проверяется одним поиском по дайджесту; подпись проверяется только при промахе,
+    // одновременные запросы с новым токеном ждут одной проверки. Недействительные токены не кешируются
+    private Long authenticate(String token) {
+        VerifiedToken verified = verifiedTokens.get(digest(token), digest -> verify(token));
+        return verified != null ? verified.userId() : null;
+    }
+
+    private VerifiedToken verify(String token) {
+        Claims claims = verificationTimer.record(() -> parser.parseSignedClaims(token).getPayload());
+        Long userId = claims.get("userId", Long.class);
+        if (userId == null) {
+            return null;
+        }
+        Date expiration = claims.getExpiration();
+        return new VerifiedToken(userId, expiration != null ? expiration.getTime() : Long.MAX_VALUE);
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record VerifiedToken(Long userId, long expiresAtMillis) {
+    }
+
+    // Запись истекает вместе с токеном, но живет не дольше jwt.cache.max-ttl
+    private record TokenExpiry(long maxTtlNanos) implements Expiry<String, VerifiedToken> {
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+            long remainingMillis = value.expiresAtMillis() - System.currentTimeMillis();
+            return Math.max(0, Math.min(maxTtlNanos, TimeUnit.MILLISECONDS.toNanos(remainingMillis)));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.userbankingservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// Доля конфликтов оптимистичных переводов по счетам (экспоненциальное среднее по попыткам). Счет, у которого
+// она превысила transfer.optimistic.conflict-threshold, на transfer.optimistic.pessimistic-ms переводится
+// на блокировки строк, затем снова пробуется без блокировок. Учитываются только счета, у которых были конфликты
+@Component
+public class AccountContentionTracker {
+    private static final Logger logger = LoggerFactory.getLogger(AccountContentionTracker.class);
+    // Вес последней попытки в среднем: при пороге 0.3 на блокировки переводят 4 конфликта подряд
+    private static final double WEIGHT = 0.1;
+
+    private final Cache<Long, Contention> accounts;
+    private final double threshold;
+    private final long pessimisticNanos;
+    private final Counter conflicts;
+    private final Counter switches;
+
+    public AccountContentionTracker(MeterRegistry meterRegistry,
+                                    @Value("${transfer.optimistic.conflict-threshold:0.3}") double threshold,
+                                    @Value("${transfer.optimistic.pessimistic-ms:30000}") long pessimisticMs,
+                                    @Value("${transfer.optimistic.max-accounts:100000}") long maxAccounts) {
+        this.threshold = threshold;
+        this.pessimisticNanos = TimeUnit.MILLISECONDS.toNanos(pessimisticMs);
+        this.accounts = Caffeine.newBuilder()
+                .maximumSize(maxAccounts)
+                .expireAfterAccess(Duration.ofMillis(pessimisticMs * 10))
+                .build();
+        this.conflicts = meterRegistry.counter("transfer.optimistic.conflicts");
+        this.switches = meterRegistry.counter("transfer.optimistic.fallbacks");
+        meterRegistry.gauge("transfer.optimistic.tracked", accounts, cache -> cache.estimatedSize());
+    }
+
+    // Перевод выполняется с блокировками, если хотя бы один из счетов сейчас на блокировках
+    public boolean shouldLock(Long fromUserId, Long toUserId) {
+        long now = System.nanoTime();
+        return isLocked(fromUserId, now) || isLocked(toUserId, now);
+    }
+
+    public void recordConflict(Long fromUserId, Long toUserId) {
+        conflicts.increment();
+        long now = System.nanoTime();
+        conflict(fromUserId, now);
+        conflict(toUserId, now);
+    }
+
+    public void recordSuccess(Long fromUserId, Long toUserId) {
+        success(fromUserId);
+        success(toUserId);
+    }
+
+    private boolean isLocked(Long userId, long now) {
+        Contention contention = accounts.getIfPresent(userId);
+        return contention != null && contention.locked(now, threshold);
+    }
+
+    private void conflict(Long userId, long now) {
+        if (accounts.get(userId, id -> new Contention()).conflict(now, threshold, pessimisticNanos)) {
+            switches.increment();
+            logger.info("Счет пользователя ID: {} переведен на блокировки строк: доля конфликтов выше {}", userId, threshold);
+        }
+    }
+
+    private void success(Long userId) {
+        Contention contention = accounts.getIfPresent(userId);
+        if (contention != null) {
+            contention.success();
+        }
+    }
+
+    private static final class Contention {
+        private double rate;
+        private boolean locked;
+        // System.nanoTime() окончания режима блокировок
+        private long lockedUntil;
+
+        synchronized boolean locked(long now, double threshold) {
+            if (locked && now - lockedUntil >= 0) {
+                // Пробный период: счет, конфликтующий по-прежнему, быстро возвращается на блокировки
+                locked = false;
+                rate = threshold / 2;
+            }
+            return locked;
+        }
+
+        // Возвращает true, если счет только что переведен на блокировки
+        synchronized boolean conflict(long now, double threshold, long pessimisticNanos) {
+            rate = rate * (1 - WEIGHT) + WEIGHT;
+            if (!locked && rate > threshold) {
+                locked = true;
+                lockedUntil = now + pessimisticNanos;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized void success() {
+            rate = rate * (1 - WEIGHT);
+        }
+    }
+}
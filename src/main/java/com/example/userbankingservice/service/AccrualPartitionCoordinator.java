@@ -0,0 +1,141 @@
+package com.example.userbankingservice.service;
+
+import com.example.userbankingservice.repository.AccrualLeaseRepository;
+import com.example.userbankingservice.repository.AccrualNodeRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+public class AccrualPartitionCoordinator {
+    private static final Logger logger = LoggerFactory.getLogger(AccrualPartitionCoordinator.class);
+    private final AccrualNodeRepository accrualNodeRepository;
+    private final AccrualLeaseRepository accrualLeaseRepository;
+    private final boolean enabled;
+    private final int partitions;
+    private final long leaseTtlMs;
+    private final String nodeId;
+
+    private volatile AccrualSlice slice;
+    private volatile long sliceValidUntil;
+
+    public AccrualPartitionCoordinator(AccrualNodeRepository accrualNodeRepository,
+                                       AccrualLeaseRepository accrualLeaseRepository,
+                                       @Value("${accrual.cluster.enabled:false}") boolean enabled,
+                                       @Value("${accrual.cluster.partitions:64}") int partitions,
+                                       @Value("${accrual.cluster.lease-ttl-ms:30000}") long leaseTtlMs,
+                                       @Value("${accrual.cluster.node-id:}") String nodeId) {
+        this.accrualNodeRepository = accrualNodeRepository;
+        this.accrualLeaseRepository = accrualLeaseRepository;
+        this.enabled = enabled;
+        this.partitions = partitions;
+        this.leaseTtlMs = leaseTtlMs;
+        this.nodeId = nodeId.isEmpty() ? defaultNodeId() : nodeId;
+        this.slice = enabled ? AccrualSlice.none(partitions) : AccrualSlice.ALL;
+    }
+
+    // Партиции, аренда которых подтверждена; если продление не удалось, узел ничего не обрабатывает
+    public AccrualSlice currentSlice() {
+        if (!enabled) {
+            return AccrualSlice.ALL;
+        }
+        return System.currentTimeMillis() < sliceValidUntil ? slice : AccrualSlice.none(partitions);
+    }
+
+    @Scheduled(fixedRateString = "${accrual.cluster.heartbeat-ms:10000}")
+    public void heartbeat() {
+        if (!enabled) {
+            return;
+        }
+        long startedAt = System.currentTimeMillis();
+        try {
+            accrualNodeRepository.heartbeat(nodeId);
+            accrualNodeRepository.deleteDeadNodes(leaseTtlMs);
+            List<String> liveNodes = accrualNodeRepository.findLiveNodeIds(leaseTtlMs);
+            List<Integer> assigned = assignedPartitions(liveNodes);
+
+            // Сначала освобождаем партиции, которые теперь назначены другим узлам, затем захватываем свои
+            if (assigned.isEmpty()) {
+                accrualLeaseRepository.releaseAll(nodeId);
+            } else {
+                accrualLeaseRepository.releaseExcept(nodeId, assigned);
+            }
+            List<Integer> owned = new ArrayList<>();
+            for (Integer partition : assigned) {
+                if (accrualLeaseRepository.claim(partition, nodeId, leaseTtlMs) > 0) {
+                    owned.add(partition);
+                }
+            }
+            slice = new AccrualSlice(partitions, List.copyOf(owned));
+            // Запас в половину срока аренды покрывает задержку между продлением и обработкой
+            sliceValidUntil = startedAt + leaseTtlMs / 2;
+            logger.debug("Узел {}: живых узлов {}, назначено партиций {}, арендовано {}",
+                    nodeId, liveNodes.size(), assigned.size(), owned.size());
+        } catch (RuntimeException e) {
+            logger.error("Не удалось продлить аренду партиций начисления: {}", e.getMessage());
+        }
+    }
+
+    // Rendezvous-хеширование: партиция достается узлу с максимальным весом, поэтому при входе
+    // или выходе узла переезжает только его доля партиций
+    private List<Integer> assignedPartitions(List<String> liveNodes) {
+        List<Integer> assigned = new ArrayList<>();
+        for (int partition = 0; partition < partitions; partition++) {
+            String winner = null;
+            long winnerWeight = Long.MIN_VALUE;
+            for (String node : liveNodes) {
+                long weight = mix(node.hashCode() * 31L + partition);
+                if (winner == null || weight > winnerWeight) {
+                    winner = node;
+                    winnerWeight = weight;
+                }
+            }
+            if (nodeId.equals(winner)) {
+                assigned.add(partition);
+            }
+        }
+        return assigned;
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    @PreDestroy
+    public void leave() {
+        if (!enabled) {
+            return;
+        }
+        // Освобождаем партиции сразу, не дожидаясь истечения аренды
+        try {
+            accrualLeaseRepository.releaseAll(nodeId);
+            accrualNodeRepository.deleteById(nodeId);
+            logger.info("Узел {} покинул кластер начисления", nodeId);
+        } catch (RuntimeException e) {
+            logger.warn("Не удалось освободить партиции при остановке: {}", e.getMessage());
+        }
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "node";
+        }
+        return host + "-" + ProcessHandle.current().pid();
+    }
+}
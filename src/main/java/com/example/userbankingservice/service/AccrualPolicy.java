@@ -0,0 +1,48 @@
+package com.example.userbankingservice.service;
+
+// Балансы в копейках (Money)
+public final class AccrualPolicy {
+    // Длительность периода начисления, совпадает с интервалом BalanceUpdateSchedulerImpl
+    public static final long TICK_MILLIS = 30_000;
+    // +10% за период и не выше 2.07 от начального баланса, в процентах
+    private static final long RATE_PERCENT = 110;
+    private static final long MAX_PERCENT = 207;
+
+    private AccrualPolicy() {
+    }
+
+    public static long tickAt(long epochMillis) {
+        return Math.floorDiv(epochMillis, TICK_MILLIS);
+    }
+
+    // Максимум баланса, округленный HALF_UP до копейки, как ROUND(initial_balance * 2.07, 2) в SQL
+    public static long maxBalance(long initialBalance) {
+        return Money.percent(initialBalance, MAX_PERCENT);
+    }
+
+    // Баланс на максимуме не меняется начислением, такой счет выпадает из рабочего набора
+    public static boolean isCapped(long balance, long initialBalance) {
+        return balance == maxBalance(initialBalance);
+    }
+
+    // Один период: +10% с округлением HALF_UP до копейки, но не выше maxBalance. Округление и минимум
+    // перестановочны, поэтому результат совпадает с ROUND(LEAST(balance * 1.10, initial_balance * 2.07), 2)
+    public static long accrueOnce(long balance, long maxBalance) {
+        return Math.min(Money.percent(balance, RATE_PERCENT), maxBalance);
+    }
+
+    // Применяет ticks периодов начисления так же, как периодический пересчет
+    public static long accrue(long balance, long initialBalance, long ticks) {
+        long maxBalance = maxBalance(initialBalance);
+        long current = balance;
+        for (long i = 0; i < ticks; i++) {
+            long next = accrueOnce(current, maxBalance);
+            // Неподвижная точка: достигнут максимум или сумма слишком мала для роста
+            if (next == current) {
+                break;
+            }
+            current = next;
+        }
+        return current;
+    }
+}
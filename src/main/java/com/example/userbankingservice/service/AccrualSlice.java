@@ -0,0 +1,16 @@
+package com.example.userbankingservice.service;
+
+import java.util.List;
+
+// Часть счетов, обрабатываемая узлом: счета, для которых id mod partitions входит в owned
+public record AccrualSlice(int partitions, List<Integer> owned) {
+    public static final AccrualSlice ALL = new AccrualSlice(1, List.of(0));
+
+    public static AccrualSlice none(int partitions) {
+        return new AccrualSlice(partitions, List.of());
+    }
+
+    public boolean isEmpty() {
+        return owned.isEmpty();
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.userbankingservice.service;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface AuthService {
+    CompletableFuture<String> login(String email, String phone, String password);
+}
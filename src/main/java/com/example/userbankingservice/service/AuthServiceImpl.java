@@ -0,0 +1,167 @@
+package com.example.userbankingservice.service;
+
+import com.example.userbankingservice.repository.UserRepository;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Проверка пароля выполняется в отдельном ограниченном пуле, а не в потоке Tomcat,
+// поэтому всплеск входов не занимает потоки, обслуживающие переводы и поиск
+@Service
+public class AuthServiceImpl implements AuthService {
+    private static final Logger logger = LoggerFactory.getLogger(AuthServiceImpl.class);
+    private final UserService userService;
+    private final UserRepository userRepository;
+    private final BCryptPasswordEncoder passwordEncoder;
+    private final int bcryptStrength;
+    private final ThreadPoolExecutor pool;
+    private final long maxQueueWaitMs;
+    private final long jwtExpiration;
+    private final SecretKey signingKey;
+    private final Timer verificationTimer;
+    private final Timer queueWaitTimer;
+    private final Counter queueFullRejections;
+    private final Counter deadlineRejections;
+
+    public AuthServiceImpl(UserService userService,
+                           UserRepository userRepository,
+                           BCryptPasswordEncoder passwordEncoder,
+                           MeterRegistry meterRegistry,
+                           @Value("${auth.bcrypt.strength:10}") int bcryptStrength,
+                           @Value("${auth.login.threads:2}") int threads,
+                           @Value("${auth.login.queue-capacity:100}") int queueCapacity,
+                           @Value("${auth.login.max-queue-wait-ms:2000}") long maxQueueWaitMs,
+                           @Value("${jwt.secret}") String jwtSecret,
+                           @Value("${jwt.expiration}") long jwtExpiration) {
+        this.userService = userService;
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.bcryptStrength = bcryptStrength;
+        this.maxQueueWaitMs = maxQueueWaitMs;
+        this.jwtExpiration = jwtExpiration;
+        this.signingKey = signingKey(jwtSecret);
+        AtomicInteger threadNumber = new AtomicInteger();
+        // Без расширения пула и без выполнения в вызывающем потоке: при заполненной очереди запрос сразу отклоняется
+        this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> new Thread(r, "auth-" + threadNumber.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.verificationTimer = meterRegistry.timer("auth.login.verification");
+        this.queueWaitTimer = meterRegistry.timer("auth.login.queue.wait");
+        this.queueFullRejections = meterRegistry.counter("auth.login.rejected", "reason", "queue_full");
+        this.deadlineRejections = meterRegistry.counter("auth.login.rejected", "reason", "deadline");
+        Gauge.builder("auth.login.queue.depth", pool, executor -> executor.getQueue().size()).register(meterRegistry);
+        Gauge.builder("auth.login.active", pool, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+    }
+
+    @Override
+    public CompletableFuture<String> login(String email, String phone, String password) {
+        // Поиск пользователя по email или phone (через кеш users, в потоке запроса); хеш пароля в кеше не хранится
+        UserSummary user;
+        if (email != null && !email.isEmpty()) {
+            user = userService.findByEmail(email)
+                    .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
+        } else if (phone != null && !phone.isEmpty()) {
+            user = userService.findByPhone(phone)
+                    .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
+        } else {
+            logger.error("Не указаны email или phone");
+            throw new RuntimeException("Укажите email или телефон");
+        }
+
+        long submittedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> verify(user, password, submittedAt), pool);
+        } catch (RejectedExecutionException e) {
+            queueFullRejections.increment();
+            logger.warn("Очередь проверки паролей заполнена, вход пользователя ID: {} отклонен", user.id());
+            throw new LoginOverloadedException("Слишком много попыток входа, повторите позже", true);
+        }
+    }
+
+    private String verify(UserSummary user, String password, long submittedAt) {
+        long waitedNanos = System.nanoTime() - submittedAt;
+        queueWaitTimer.record(waitedNanos, TimeUnit.NANOSECONDS);
+        // Клиент, скорее всего, уже не ждет ответа, поэтому проверка не выполняется
+        if (TimeUnit.NANOSECONDS.toMillis(waitedNanos) > maxQueueWaitMs) {
+            deadlineRejections.increment();
+            logger.warn("Проверка пароля пользователя ID: {} ждала в очереди дольше {} мс", user.id(), maxQueueWaitMs);
+            throw new LoginOverloadedException("Сервис входа перегружен, повторите позже", false);
+        }
+
+        // Проверка пароля по хешу из базы
+        String hash = userRepository.findPasswordById(user.id()).orElse(null);
+        boolean matches = verificationTimer.record(() -> password != null && hash != null && passwordEncoder.matches(password, hash));
+        if (!matches) {
+            logger.error("Неверные учетные данные для пользователя ID: {}", user.id());
+            throw new RuntimeException("Неверные учетные данные");
+        }
+        rehashIfNeeded(user.id(), hash, password);
+
+        String token = Jwts.builder()
+                .subject(String.valueOf(user.id()))
+                .claim("userId", user.id())
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + jwtExpiration))
+                .signWith(signingKey)
+                .compact();
+        logger.info("Токен выдан для пользователя ID: {}", user.id());
+        return token;
+    }
+
+    // Пароль известен только при входе, поэтому хеш с другой стоимостью (выше или ниже настроенной)
+    // заменяется здесь. Ошибка сохранения не мешает входу: хеш будет обновлен при следующем входе
+    private void rehashIfNeeded(Long userId, String hash, String password) {
+        if (costOf(hash) == bcryptStrength) {
+            return;
+        }
+        try {
+            userRepository.updatePassword(userId, passwordEncoder.encode(password));
+            logger.info("Хеш пароля пользователя ID: {} пересчитан с новой стоимостью", userId);
+        } catch (RuntimeException e) {
+            logger.error("Не удалось обновить хеш пароля пользователя ID: {}: {}", userId, e.getMessage());
+        }
+    }
+
+    // Хеш BCrypt имеет вид $2a$10$..., где 10 - стоимость
+    static int costOf(String hash) {
+        return Integer.parseInt(hash.substring(4, 6));
+    }
+
+    private static SecretKey signingKey(String jwtSecret) {
+        byte[] keyBytes = jwtSecret.getBytes(StandardCharsets.UTF_8);
+
+        // Убеждаемся что ключ достаточно длинный для HMAC-SHA256 (минимум 32 байта)
+        if (keyBytes.length < 32) {
+            byte[] paddedKey = new byte[32];
+            System.arraycopy(keyBytes, 0, paddedKey, 0, Math.min(keyBytes.length, 32));
+            keyBytes = paddedKey;
+        }
+
+        return Keys.hmacShaKeyFor(keyBytes);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.userbankingservice.service;
+
+import com.example.userbankingservice.entity.Account;
+import com.example.userbankingservice.repository.AccountRepository;
+import com.example.userbankingservice.repository.AccountStripeRepository;
+import com.example.userbankingservice.repository.AccountStripeTotalRow;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+// Полосы баланса горячих счетов (transfer.striping.user-ids): баланс такого счета - это строка account
+// плюс transfer.striping.stripes строк account_stripe. Зачисление блокирует одну свободную полосу вместо
+// строки счета, поэтому зачисления на один счет идут параллельно до числа полос. Списание и консолидатор
+// переносят полосы в строку счета под ее блокировкой
+@Component
+public class BalanceStriping {
+    private static final Logger logger = LoggerFactory.getLogger(BalanceStriping.class);
+
+    private final AccountRepository accountRepository;
+    private final AccountStripeRepository stripeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final LazyBalanceAccrual lazyBalanceAccrual;
+    private final Set<Long> configuredUserIds;
+    private final int stripes;
+    private final Counter contended;
+    // ID пользователя -> ID счета с полосами; заполняется при старте
+    private volatile Map<Long, Long> stripedAccounts = Map.of();
+
+    public BalanceStriping(AccountRepository accountRepository,
+                           AccountStripeRepository stripeRepository,
+                           TransactionTemplate transactionTemplate,
+                           LazyBalanceAccrual lazyBalanceAccrual,
+                           MeterRegistry meterRegistry,
+                           @Value("${transfer.striping.user-ids:}") Set<Long> configuredUserIds,
+                           @Value("${transfer.striping.stripes:8}") int stripes) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("transfer.striping.stripes должно быть больше 0");
+        }
+        this.accountRepository = accountRepository;
+        this.stripeRepository = stripeRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.lazyBalanceAccrual = lazyBalanceAccrual;
+        this.configuredUserIds = Set.copyOf(configuredUserIds);
+        this.stripes = stripes;
+        this.contended = meterRegistry.counter("transfer.striping.contended");
+    }
+
+    public boolean isStriped(Long userId) {
+        return stripedAccounts.containsKey(userId);
+    }
+
+    // Вызывается в транзакции перевода вместо блокировки строки счета получателя; сумма в копейках
+    public void credit(Long userId, long amount) {
+        Long accountId = stripedAccounts.get(userId);
+        if (accountId == null) {
+            throw new IllegalStateException("Счет пользователя ID: " + userId + " не разбит на полосы");
+        }
+        BigDecimal decimalAmount = Money.toDecimal(amount);
+        if (stripeRepository.creditFreeStripe(accountId, decimalAmount) > 0) {
+            return;
+        }
+        // Все полосы заняты другими транзакциями: ждем случайную
+        contended.increment();
+        if (stripeRepository.creditStripe(accountId, ThreadLocalRandom.current().nextInt(stripes), decimalAmount) == 0) {
+            logger.error("Полосы баланса счета ID: {} не найдены", accountId);
+            throw new RuntimeException("Счет не найден");
+        }
+    }
+
+    // Вызывается для заблокированного счета перед списанием: переносит все полосы в строку счета,
+    // после чего баланс строки равен полному балансу счета
+    public void borrow(Account account) {
+        if (account.getStripes() == 0) {
+            return;
+        }
+        long drained = Money.fromDecimal(stripeRepository.drain(account.getId()));
+        if (drained > 0) {
+            account.setBalance(Money.add(account.getBalance(), drained));
+        }
+    }
+
+    // Средства в полосах в копейках, еще не перенесенные в строку счета, по ID счета; для чтения полного баланса
+    public Map<Long, Long> stripeTotals(Collection<Account> accounts) {
+        List<Long> accountIds = accounts.stream()
+                .filter(account -> account.getStripes() > 0)
+                .map(Account::getId)
+                .toList();
+        if (accountIds.isEmpty()) {
+            return Map.of();
+        }
+        return stripeRepository.findTotalsByAccountIdIn(accountIds).stream()
+                .collect(Collectors.toMap(AccountStripeTotalRow::getAccountId, row -> Money.fromDecimal(row.getTotal())));
+    }
+
+    // Приводит полосы в базе к настройке: счета из списка получают stripes полос, у остальных счетов
+    // полосы переносятся в строку счета и удаляются
+    @EventListener(ApplicationReadyEvent.class)
+    public void configure() {
+        for (Account account : accountRepository.findStriped()) {
+            Long userId = account.getUser().getId();
+            if (!configuredUserIds.contains(userId)) {
+                restripe(userId, 0);
+                logger.info("Полосы баланса счета пользователя ID: {} объединены", userId);
+            }
+        }
+        Map<Long, Long> striped = new HashMap<>();
+        for (Long userId : configuredUserIds) {
+            Long accountId = restripe(userId, stripes);
+            if (accountId != null) {
+                striped.put(userId, accountId);
+            }
+        }
+        stripedAccounts = Map.copyOf(striped);
+        if (!striped.isEmpty()) {
+            logger.info("Полосы баланса включены для счетов: {}, полос на счет: {}", striped.size(), stripes);
+        }
+    }
+
+    // Переносит полосы в строку счета и оставляет count пустых полос; возвращает ID счета
+    private Long restripe(Long userId, int count) {
+        return transactionTemplate.execute(status -> {
+            Account account = accountRepository.findByUserIdForUpdate(userId);
+            if (account == null) {
+                logger.warn("Счет пользователя ID: {} для полос баланса не найден", userId);
+                return null;
+            }
+            lazyBalanceAccrual.materialize(account);
+            borrow(account);
+            stripeRepository.deleteFromStripe(account.getId(), count);
+            if (count > 0) {
+                stripeRepository.createStripes(account.getId(), count);
+            }
+            accountRepository.updateStripes(account.getId(), count);
+            return account.getId();
+        });
+    }
+
+    // Консолидатор: переносит накопленные в полосах зачисления в строку счета. Строка счета блокируется,
+    // только если в полосах есть средства
+    @Scheduled(fixedDelayString = "${transfer.striping.consolidate-interval-ms:5000}",
+            initialDelayString = "${transfer.striping.consolidate-interval-ms:5000}")
+    public void consolidate() {
+        int consolidated = 0;
+        for (Map.Entry<Long, Long> striped : stripedAccounts.entrySet()) {
+            Long userId = striped.getKey();
+            try {
+                if (stripeRepository.sumByAccountId(striped.getValue()).signum() == 0) {
+                    continue;
+                }
+                transactionTemplate.executeWithoutResult(status -> {
+                    Account account = accountRepository.findByUserIdForUpdate(userId);
+                    lazyBalanceAccrual.materialize(account);
+                    borrow(account);
+                });
+                consolidated++;
+            } catch (RuntimeException e) {
+                logger.error("Не удалось объединить полосы баланса пользователя ID: {}: {}", userId, e.getMessage());
+            }
+        }
+        if (consolidated > 0) {
+            logger.debug("Консолидатор полос баланса обработал счетов: {}", consolidated);
+        }
+    }
+}
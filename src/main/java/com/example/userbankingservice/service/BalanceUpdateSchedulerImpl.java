@@ -1,60 +1,50 @@
 package com.example.userbankingservice.service;
 
-import com.example.userbankingservice.entity.Account;
-import com.example.userbankingservice.repository.AccountRepository;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
-
-import java.math.BigDecimal;
-import java.util.List;
 
 @Component
 @RequiredArgsConstructor
 public class BalanceUpdateSchedulerImpl implements BalanceUpdateScheduler {
     private static final Logger logger = LoggerFactory.getLogger(BalanceUpdateSchedulerImpl.class);
-    private final AccountRepository accountRepository;
+    private final EntityBalanceAccrual entityBalanceAccrual;
+    private final SetBasedBalanceAccrual setBasedBalanceAccrual;
+    private final ParallelBalanceAccrual parallelBalanceAccrual;
+    private final AccrualPartitionCoordinator accrualPartitionCoordinator;
 
-    // Статический флаг для отключения шедулера
-    private static volatile boolean isSchedulerDisabled = false;
+    @Value("${accrual.mode:ENTITY}")
+    private AccrualMode accrualMode;
 
     @Override
-    @Scheduled(fixedRate = 30000) // Каждые 30 секунд
-    @Transactional
+    // В начале каждого периода начисления (AccrualPolicy.TICK_MILLIS), на всех узлах одновременно: после переезда
+    // партиции новый владелец обрабатывает ее со следующего периода, а не в своей фазе
+    @Scheduled(cron = "0/30 * * * * *")
     public void updateBalances() {
-        // Проверка флага отключения
-        if (isSchedulerDisabled) {
-            logger.info("Шедулер отключен, так как все счета достигли максимального баланса");
+        long tick = AccrualPolicy.tickAt(System.currentTimeMillis());
+        if (accrualMode == AccrualMode.LAZY) {
+            logger.debug("Ленивый режим начисления, периодический пересчет не выполняется");
             return;
         }
-
-        logger.info("Запуск обновления балансов");
-        List<Account> accounts = accountRepository.findAll();
-        boolean allMaxedOut = true; // Флаг для проверки, достигли ли все счета максимума
-
-        for (Account account : accounts) {
-            BigDecimal maxBalance = account.getInitialBalance().multiply(new BigDecimal("2.07"));
-            BigDecimal newBalance = account.getBalance().multiply(new BigDecimal("1.10"));
-            if (newBalance.compareTo(maxBalance) > 0) {
-                newBalance = maxBalance;
-                logger.info("Достигнут максимальный баланс для счета ID: {}. Установлен баланс: {}", account.getId(), newBalance);
-            } else {
-                allMaxedOut = false; // Если хотя бы один счет не достиг максимума, сбрасываем флаг
-            }
-            account.setBalance(newBalance);
-            accountRepository.save(account);
-            logger.debug("Баланс счета ID: {} обновлен до {}", account.getId(), newBalance);
+        // В кластере каждый узел обрабатывает только арендованные им партиции счетов
+        AccrualSlice slice = accrualPartitionCoordinator.currentSlice();
+        if (slice.isEmpty()) {
+            logger.info("Узлу не назначены партиции счетов, обновление балансов пропущено");
+            return;
         }
-
-        // Если все счета достигли максимального баланса, отключаем шедулер
-        if (allMaxedOut) {
-            isSchedulerDisabled = true;
-            logger.info("Все счета достигли максимального баланса. Шедулер отключен.");
+        // Период проверяется и записывается в транзакции начисления каждого счета: проход прежнего владельца
+        // партиции, еще не завершившийся после ее переезда, не приводит к повторному начислению
+        logger.info("Запуск обновления балансов за период {}", tick);
+        if (accrualMode == AccrualMode.SET_BASED) {
+            setBasedBalanceAccrual.accrue(slice, tick);
+        } else if (accrualMode == AccrualMode.PARALLEL) {
+            parallelBalanceAccrual.accrue(slice, tick);
+        } else {
+            entityBalanceAccrual.accrue(slice, tick);
         }
-
         logger.info("Обновление балансов завершено");
     }
-}
\ No newline at end of file
+}
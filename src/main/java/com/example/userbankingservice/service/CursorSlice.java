@@ -0,0 +1,8 @@
+package com.example.userbankingservice.service;
+
+import java.io.Serializable;
+import java.util.List;
+
+// Страница поиска по курсору: nextCursor передается в следующий запрос, null на последней странице
+public record CursorSlice<T>(List<T> content, String nextCursor, boolean hasNext) implements Serializable {
+}
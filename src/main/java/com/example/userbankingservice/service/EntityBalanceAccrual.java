@@ -0,0 +1,83 @@
+package com.example.userbankingservice.service;
+
+import com.example.userbankingservice.entity.Account;
+import com.example.userbankingservice.repository.AccountRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Начисление в режиме ENTITY: счета рабочего набора читаются сущностями диапазонами по accrual.entity.chunk-size
+// (границы по индексу первичного ключа), каждый диапазон пересчитывается и записывается в своей транзакции.
+// Счета читаются без блокировок: если перевод изменил счет диапазона после чтения, проверка версии откатывает
+// только этот диапазон, и он перечитывается по transfer.retry. Диапазон, не записанный после всех попыток,
+// пропускает этот период, остальные диапазоны продолжают работу
+@Component
+public class EntityBalanceAccrual {
+    private static final Logger logger = LoggerFactory.getLogger(EntityBalanceAccrual.class);
+    private final AccountRepository accountRepository;
+    private final TransactionRetryExecutor transactionRetryExecutor;
+    private final int chunkSize;
+
+    public EntityBalanceAccrual(AccountRepository accountRepository,
+                                TransactionRetryExecutor transactionRetryExecutor,
+                                @Value("${accrual.entity.chunk-size:1000}") int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("accrual.entity.chunk-size должен быть больше 0");
+        }
+        this.accountRepository = accountRepository;
+        this.transactionRetryExecutor = transactionRetryExecutor;
+        this.chunkSize = chunkSize;
+    }
+
+    public Result accrue(AccrualSlice slice, long tick) {
+        int chunks = 0;
+        int updated = 0;
+        int failed = 0;
+        long afterId = Long.MIN_VALUE;
+        Long upperId;
+        while ((upperId = accountRepository.findChunkUpperBound(
+                afterId, chunkSize, slice.partitions(), slice.owned())) != null) {
+            long fromId = afterId;
+            long toId = upperId;
+            chunks++;
+            try {
+                updated += transactionRetryExecutor.execute("accrual", "accrual-chunk",
+                        () -> accrueRange(fromId, toId, slice, tick));
+            } catch (RuntimeException e) {
+                failed++;
+                logger.error("Ошибка начисления для диапазона ({}, {}]: {}", fromId, toId, e.getMessage());
+            }
+            afterId = upperId;
+        }
+        logger.info("Начисление по {} диапазонам завершено, обновлено счетов: {}, ошибок: {}", chunks, updated, failed);
+        return new Result(updated, failed);
+    }
+
+    private int accrueRange(long fromId, long toId, AccrualSlice slice, long tick) {
+        // Счета на максимуме не загружаются: они выпадают из рабочего набора и возвращаются в него,
+        // когда баланс меняется переводом (флаг capped пересчитывается при каждом сохранении счета)
+        List<Account> accounts = accountRepository.findGrowingInRange(fromId, toId, slice.partitions(), slice.owned(), tick);
+        for (Account account : accounts) {
+            long maxBalance = AccrualPolicy.maxBalance(account.getInitialBalance());
+            long newBalance = AccrualPolicy.accrueOnce(account.getBalance(), maxBalance);
+            if (newBalance == maxBalance) {
+                logger.info("Достигнут максимальный баланс для счета ID: {}. Установлен баланс: {}",
+                        account.getId(), Money.toDecimal(newBalance));
+            }
+            account.setBalance(newBalance);
+            account.setAccrualTick(null);
+            account.setLastAccruedTick(tick);
+            accountRepository.save(account);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Баланс счета ID: {} обновлен до {}", account.getId(), Money.toDecimal(newBalance));
+            }
+        }
+        return accounts.size();
+    }
+
+    public record Result(int updatedAccounts, int failedChunks) {
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.userbankingservice.service;
+
+import com.example.userbankingservice.entity.Account;
+import com.example.userbankingservice.repository.AccountRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+@Component
+public class LazyBalanceAccrual {
+    private static final Logger logger = LoggerFactory.getLogger(LazyBalanceAccrual.class);
+    private final AccountRepository accountRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final AccrualPartitionCoordinator accrualPartitionCoordinator;
+    private final AccrualMode accrualMode;
+    private final int compactionChunkSize;
+    private final long staleTicks;
+
+    public LazyBalanceAccrual(AccountRepository accountRepository,
+                              TransactionTemplate transactionTemplate,
+                              AccrualPartitionCoordinator accrualPartitionCoordinator,
+                              @Value("${accrual.mode:ENTITY}") AccrualMode accrualMode,
+                              @Value("${accrual.lazy.compaction-chunk-size:1000}") int compactionChunkSize,
+                              @Value("${accrual.lazy.stale-ticks:20}") long staleTicks) {
+        this.accountRepository = accountRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.accrualPartitionCoordinator = accrualPartitionCoordinator;
+        this.accrualMode = accrualMode;
+        this.compactionChunkSize = compactionChunkSize;
+        this.staleTicks = staleTicks;
+    }
+
+    public boolean isEnabled() {
+        return accrualMode == AccrualMode.LAZY;
+    }
+
+    public long currentTick() {
+        return AccrualPolicy.tickAt(System.currentTimeMillis());
+    }
+
+    // Баланс в копейках с учетом начислений, еще не записанных в строку счета
+    public long effectiveBalance(Account account) {
+        if (!isEnabled() || account.getAccrualTick() == null) {
+            return account.getBalance();
+        }
+        return AccrualPolicy.accrue(account.getBalance(), account.getInitialBalance(),
+                currentTick() - account.getAccrualTick());
+    }
+
+    // Вызывается для заблокированного счета перед изменением баланса. В периодических режимах
+    // сбрасывает период, чтобы при переходе в ленивый режим начисления не были учтены дважды
+    public void materialize(Account account) {
+        if (!isEnabled()) {
+            account.setAccrualTick(null);
+            return;
+        }
+        account.setBalance(effectiveBalance(account));
+        account.setAccrualTick(currentTick());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startTracking() {
+        if (isEnabled()) {
+            int stamped = accountRepository.startAccrualTracking(currentTick());
+            logger.info("Ленивое начисление включено, счетов поставлено на учет: {}", stamped);
+        }
+    }
+
+    // Компактор: приводит к текущему периоду счета, которые давно не менялись и еще не достигли максимума
+    @Scheduled(fixedRateString = "${accrual.lazy.compaction-interval-ms:600000}",
+            initialDelayString = "${accrual.lazy.compaction-interval-ms:600000}")
+    public void compact() {
+        AccrualSlice slice = accrualPartitionCoordinator.currentSlice();
+        if (!isEnabled() || slice.isEmpty()) {
+            return;
+        }
+        long staleTick = currentTick() - staleTicks;
+        long afterId = Long.MIN_VALUE;
+        int compacted = 0;
+        while (true) {
+            long fromId = afterId;
+            List<Account> accounts = transactionTemplate.execute(status -> {
+                List<Account> chunk = accountRepository.findStaleAccrualsForUpdate(fromId, staleTick,
+                        slice.partitions(), slice.owned(), PageRequest.of(0, compactionChunkSize));
+                chunk.forEach(this::materialize);
+                return chunk;
+            });
+            if (accounts == null || accounts.isEmpty()) {
+                break;
+            }
+            compacted += accounts.size();
+            afterId = accounts.get(accounts.size() - 1).getId();
+        }
+        logger.info("Компактор начислений обработал счетов: {}", compacted);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.userbankingservice.service;
+
+// Проверка пароля отклонена без выполнения: очередь заполнена (queueFull) или запрос ждал дольше допустимого
+public class LoginOverloadedException extends RuntimeException {
+    private final boolean queueFull;
+
+    public LoginOverloadedException(String message, boolean queueFull) {
+        super(message);
+        this.queueFull = queueFull;
+    }
+
+    public boolean isQueueFull() {
+        return queueFull;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.userbankingservice.service;
+
+import java.math.BigDecimal;
+
+// Денежные суммы в копейках (long): балансы счетов, переводы и начисления считаются без создания BigDecimal.
+// BigDecimal остается на границах: JSON, параметры SQL-запросов и столбцы DECIMAL(19,2) (MoneyConverter).
+// Сложение и вычитание с переполнением long бросают ArithmeticException, а не меняют знак суммы
+public final class Money {
+    public static final int SCALE = 2;
+    // Наибольшая сумма в копейках, около 9.2e16 рублей: меньше предела столбца DECIMAL(19,2)
+    private static final BigDecimal MAX_DECIMAL = BigDecimal.valueOf(Long.MAX_VALUE, SCALE);
+
+    private Money() {
+    }
+
+    // Сумма представима в копейках: не больше двух знаков после запятой и помещается в long
+    public static boolean fits(BigDecimal amount) {
+        return (amount.scale() <= SCALE || amount.stripTrailingZeros().scale() <= SCALE)
+                && amount.abs().compareTo(MAX_DECIMAL) <= 0;
+    }
+
+    // Дробные копейки не округляются: сумма с ними отклоняется
+    public static long fromDecimal(BigDecimal amount) {
+        if (!fits(amount)) {
+            throw new RuntimeException("Сумма должна быть указана с точностью до копейки и не превышать " + MAX_DECIMAL);
+        }
+        return amount.movePointRight(SCALE).longValueExact();
+    }
+
+    public static BigDecimal toDecimal(long amount) {
+        return BigDecimal.valueOf(amount, SCALE);
+    }
+
+    public static long add(long amount, long addend) {
+        return Math.addExact(amount, addend);
+    }
+
+    public static long subtract(long amount, long subtrahend) {
+        return Math.subtractExact(amount, subtrahend);
+    }
+
+    // amount * percent / 100 с округлением до копейки HALF_UP: половина копейки округляется от нуля,
+    // как ROUND(numeric, 2) в PostgreSQL и RoundingMode.HALF_UP
+    public static long percent(long amount, long percent) {
+        long product = Math.multiplyExact(amount, percent);
+        long quotient = product / 100;
+        if (Math.abs(product % 100) >= 50) {
+            quotient += Long.signum(product);
+        }
+        return quotient;
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.userbankingservice.service;
+
+import com.example.userbankingservice.repository.AccountRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Начисление в режиме PARALLEL: поток шедулера находит по индексу первичного ключа границы диапазонов
+// из accrual.parallel.chunk-size счетов рабочего набора, диапазоны обрабатываются на ForkJoinPool из
+// accrual.parallel.parallelism потоков. Поток читает балансы диапазона в массивы копеек, вычисляет начисление
+// (AccrualPolicy) и записывает изменившиеся счета одним UPDATE с массивами ID, балансов и версий в параметрах
+// в своей транзакции, на своем соединении. Счет, измененный переводом после чтения, запрос не перезаписывает
+// (условие на версию строки): такие счета перечитываются и пересчитываются, всего не более MAX_ATTEMPTS раз.
+// Счета, уже получившие начисление за период (last_accrued_tick), не читаются
+@Component
+public class ParallelBalanceAccrual {
+    private static final Logger logger = LoggerFactory.getLogger(ParallelBalanceAccrual.class);
+    private static final int MAX_ATTEMPTS = 3;
+    // Балансы читаются и пишутся в копейках, без BigDecimal на каждую строку
+    private static final String SELECT_RANGE = "SELECT id, (balance * 100)::bigint, (initial_balance * 100)::bigint, version " +
+            "FROM account WHERE id > :fromId AND id <= :toId AND NOT capped AND mod(id, :partitions) IN (:owned) " +
+            "AND (last_accrued_tick IS NULL OR last_accrued_tick < :tick) ORDER BY id";
+    private static final String SELECT_IDS = "SELECT id, (balance * 100)::bigint, (initial_balance * 100)::bigint, version " +
+            "FROM account WHERE id IN (:ids) AND NOT capped AND (last_accrued_tick IS NULL OR last_accrued_tick < :tick) " +
+            "ORDER BY id";
+    // Один запрос на диапазон вместо пакета UPDATE ... WHERE id = ?: сервер выполняет его как одно соединение
+    // с массивами, а не как отдельный запрос на каждую строку
+    private static final String UPDATE = "UPDATE account a SET balance = CAST(v.balance AS numeric) / 100, capped = v.capped, " +
+            "accrual_tick = NULL, last_accrued_tick = ?, version = a.version + 1 " +
+            "FROM unnest(?::bigint[], ?::bigint[], ?::boolean[], ?::bigint[]) " +
+            "AS v(id, balance, capped, version) WHERE a.id = v.id AND a.version = v.version RETURNING a.id";
+
+    private final AccountRepository accountRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionRetryExecutor transactionRetryExecutor;
+    private final int chunkSize;
+    private final ForkJoinPool pool;
+    private final Timer fetchTimer;
+    private final Timer computeTimer;
+    private final Timer writeTimer;
+    private final Timer runTimer;
+
+    public ParallelBalanceAccrual(AccountRepository accountRepository,
+                                  JdbcTemplate jdbcTemplate,
+                                  NamedParameterJdbcTemplate namedJdbcTemplate,
+                                  TransactionRetryExecutor transactionRetryExecutor,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${accrual.parallel.chunk-size:10000}") int chunkSize,
+                                  @Value("${accrual.parallel.parallelism:4}") int parallelism) {
+        if (chunkSize < 1 || parallelism < 1) {
+            throw new IllegalArgumentException("accrual.parallel.chunk-size и accrual.parallel.parallelism должны быть больше 0");
+        }
+        this.accountRepository = accountRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.transactionRetryExecutor = transactionRetryExecutor;
+        this.chunkSize = chunkSize;
+        // Потоки пула создаются при первом запуске; каждый поток держит не больше одного соединения
+        this.pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("accrual-fj-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+        // Суммарное время этапа по всем потокам за один запуск и длительность запуска
+        this.fetchTimer = stageTimer(meterRegistry, "fetch");
+        this.computeTimer = stageTimer(meterRegistry, "compute");
+        this.writeTimer = stageTimer(meterRegistry, "write");
+        this.runTimer = stageTimer(meterRegistry, "total");
+    }
+
+    private static Timer stageTimer(MeterRegistry meterRegistry, String stage) {
+        return Timer.builder("accrual.parallel.stage")
+                .description("Этап параллельного начисления за один запуск")
+                .tag("stage", stage)
+                .register(meterRegistry);
+    }
+
+    public Result accrue(AccrualSlice slice, long tick) {
+        long startedAt = System.nanoTime();
+        Run run = new Run();
+        List<ForkJoinTask<?>> chunks = new ArrayList<>();
+        long afterId = Long.MIN_VALUE;
+        while (true) {
+            long boundsStartedAt = System.nanoTime();
+            Long upperId = accountRepository.findChunkUpperBound(afterId, chunkSize, slice.partitions(), slice.owned());
+            run.fetchNanos.add(System.nanoTime() - boundsStartedAt);
+            if (upperId == null) {
+                break;
+            }
+            long fromId = afterId;
+            chunks.add(pool.submit(() -> accrueRange(fromId, upperId, slice, tick, run)));
+            afterId = upperId;
+        }
+        chunks.forEach(ForkJoinTask::join);
+
+        long elapsedNanos = System.nanoTime() - startedAt;
+        fetchTimer.record(run.fetchNanos.sum(), TimeUnit.NANOSECONDS);
+        computeTimer.record(run.computeNanos.sum(), TimeUnit.NANOSECONDS);
+        writeTimer.record(run.writeNanos.sum(), TimeUnit.NANOSECONDS);
+        runTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        Result result = new Result(run.updated.get(), run.conflicts.get(), run.skipped.get(), run.failedChunks.get());
+        logger.info("Параллельное начисление по {} диапазонам завершено за {} мс, обновлено счетов: {}, конфликтов: {}, " +
+                        "пропущено счетов: {}, ошибок: {}; выборка {} мс, расчет {} мс, запись {} мс (сумма по потокам)",
+                chunks.size(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos), result.updatedAccounts(), result.conflicts(),
+                result.skippedAccounts(), result.failedChunks(), TimeUnit.NANOSECONDS.toMillis(run.fetchNanos.sum()),
+                TimeUnit.NANOSECONDS.toMillis(run.computeNanos.sum()), TimeUnit.NANOSECONDS.toMillis(run.writeNanos.sum()));
+        if (elapsedNanos > TimeUnit.MILLISECONDS.toNanos(AccrualPolicy.TICK_MILLIS)) {
+            logger.warn("Начисление заняло больше периода {} мс: увеличьте accrual.parallel.parallelism " +
+                    "или распределите партиции по узлам", AccrualPolicy.TICK_MILLIS);
+        }
+        return result;
+    }
+
+    private void accrueRange(long fromId, long toId, AccrualSlice slice, long tick, Run run) {
+        try {
+            Chunk chunk = fetch(SELECT_RANGE, new MapSqlParameterSource()
+                    .addValue("fromId", fromId)
+                    .addValue("toId", toId)
+                    .addValue("partitions", slice.partitions())
+                    .addValue("owned", slice.owned())
+                    .addValue("tick", tick), run);
+            for (int attempt = 1; chunk.size > 0; attempt++) {
+                compute(chunk, run);
+                List<Long> conflicted = write(chunk, tick, run);
+                if (conflicted.isEmpty()) {
+                    return;
+                }
+                run.conflicts.addAndGet(conflicted.size());
+                if (attempt >= MAX_ATTEMPTS) {
+                    // Начисление за этот период для таких счетов пропускается
+                    run.skipped.addAndGet(conflicted.size());
+                    logger.warn("Счета диапазона ({}, {}] не обновлены после {} попыток из-за переводов: {}",
+                            fromId, toId, attempt, conflicted.size());
+                    return;
+                }
+                chunk = fetch(SELECT_IDS, new MapSqlParameterSource("ids", conflicted).addValue("tick", tick), run);
+            }
+        } catch (RuntimeException e) {
+            // Диапазон пропускает этот запуск, остальные диапазоны продолжают работу
+            run.failedChunks.incrementAndGet();
+            logger.error("Ошибка начисления для диапазона ({}, {}]: {}", fromId, toId, e.getMessage());
+        }
+    }
+
+    private Chunk fetch(String sql, MapSqlParameterSource params, Run run) {
+        long startedAt = System.nanoTime();
+        Chunk chunk = new Chunk(chunkSize);
+        namedJdbcTemplate.query(sql, params, rs -> {
+            chunk.add(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4));
+        });
+        run.fetchNanos.add(System.nanoTime() - startedAt);
+        return chunk;
+    }
+
+    // Новые балансы и список изменившихся строк. Строки, значение которых не меняется, не перезаписываются,
+    // кроме счетов на максимуме, которые при этом выходят из рабочего набора (как в SET_BASED)
+    private static void compute(Chunk chunk, Run run) {
+        long startedAt = System.nanoTime();
+        chunk.changed = 0;
+        for (int i = 0; i < chunk.size; i++) {
+            long maxBalance = AccrualPolicy.maxBalance(chunk.initialBalances[i]);
+            long newBalance = AccrualPolicy.accrueOnce(chunk.balances[i], maxBalance);
+            boolean capped = newBalance == maxBalance;
+            if (newBalance != chunk.balances[i] || capped) {
+                chunk.newBalances[i] = newBalance;
+                chunk.capped[i] = capped;
+                chunk.changedRows[chunk.changed++] = i;
+            }
+        }
+        run.computeNanos.add(System.nanoTime() - startedAt);
+    }
+
+    // Возвращает ID счетов, версия которых изменилась после чтения
+    private List<Long> write(Chunk chunk, long tick, Run run) {
+        if (chunk.changed == 0) {
+            return List.of();
+        }
+        long startedAt = System.nanoTime();
+        Long[] ids = new Long[chunk.changed];
+        Long[] balances = new Long[chunk.changed];
+        Boolean[] capped = new Boolean[chunk.changed];
+        Long[] versions = new Long[chunk.changed];
+        for (int i = 0; i < chunk.changed; i++) {
+            int row = chunk.changedRows[i];
+            ids[i] = chunk.ids[row];
+            balances[i] = chunk.newBalances[row];
+            capped[i] = chunk.capped[row];
+            versions[i] = chunk.versions[row];
+        }
+        Set<Long> updatedIds = new HashSet<>(transactionRetryExecutor.execute("accrual", "accrual-write",
+                () -> jdbcTemplate.query(connection -> {
+                    PreparedStatement ps = connection.prepareStatement(UPDATE);
+                    ps.setLong(1, tick);
+                    ps.setArray(2, connection.createArrayOf("bigint", ids));
+                    ps.setArray(3, connection.createArrayOf("bigint", balances));
+                    ps.setArray(4, connection.createArrayOf("boolean", capped));
+                    ps.setArray(5, connection.createArrayOf("bigint", versions));
+                    return ps;
+                }, (rs, rowNum) -> rs.getLong(1))));
+        run.writeNanos.add(System.nanoTime() - startedAt);
+        List<Long> conflicted = new ArrayList<>();
+        for (Long id : ids) {
+            if (!updatedIds.contains(id)) {
+                conflicted.add(id);
+            }
+        }
+        run.updated.addAndGet(updatedIds.size());
+        return conflicted;
+    }
+
+    // Счета диапазона в массивах, балансы в копейках
+    private static final class Chunk {
+        final long[] ids;
+        final long[] balances;
+        final long[] initialBalances;
+        final long[] versions;
+        final long[] newBalances;
+        final boolean[] capped;
+        final int[] changedRows;
+        int size;
+        int changed;
+
+        Chunk(int capacity) {
+            ids = new long[capacity];
+            balances = new long[capacity];
+            initialBalances = new long[capacity];
+            versions = new long[capacity];
+            newBalances = new long[capacity];
+            capped = new boolean[capacity];
+            changedRows = new int[capacity];
+        }
+
+        void add(long id, long balance, long initialBalance, long version) {
+            ids[size] = id;
+            balances[size] = balance;
+            initialBalances[size] = initialBalance;
+            versions[size] = version;
+            size++;
+        }
+    }
+
+    // Счетчики одного запуска, общие для потоков пула
+    private static final class Run {
+        final LongAdder fetchNanos = new LongAdder();
+        final LongAdder computeNanos = new LongAdder();
+        final LongAdder writeNanos = new LongAdder();
+        final AtomicInteger updated = new AtomicInteger();
+        final AtomicInteger conflicts = new AtomicInteger();
+        final AtomicInteger skipped = new AtomicInteger();
+        final AtomicInteger failedChunks = new AtomicInteger();
+    }
+
+    public record Result(int updatedAccounts, int conflicts, int skippedAccounts, int failedChunks) {
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
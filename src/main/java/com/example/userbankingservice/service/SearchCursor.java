@@ -0,0 +1,31 @@
+package com.example.userbankingservice.service;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+
+// Непрозрачный курсор поиска: позиция (name, id) последнего пользователя на странице
+final class SearchCursor {
+
+    private SearchCursor() {
+    }
+
+    static String encode(String name, Long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((id + ":" + name).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static KeysetScrollPosition decode(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf(':');
+            Long id = Long.valueOf(decoded.substring(0, separator));
+            return ScrollPosition.forward(Map.of("name", decoded.substring(separator + 1), "id", id));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new RuntimeException("Некорректный курсор");
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.userbankingservice.service;
+
+import com.example.userbankingservice.repository.AccountRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Component
+public class SetBasedBalanceAccrual {
+    private static final Logger logger = LoggerFactory.getLogger(SetBasedBalanceAccrual.class);
+    private final AccountRepository accountRepository;
+    private final int chunkSize;
+    private final ExecutorService pool;
+
+    public SetBasedBalanceAccrual(AccountRepository accountRepository,
+                                  @Value("${accrual.set-based.chunk-size:5000}") int chunkSize,
+                                  @Value("${accrual.set-based.parallelism:1}") int parallelism) {
+        this.accountRepository = accountRepository;
+        this.chunkSize = chunkSize;
+        // При parallelism = 1 диапазоны обрабатываются в потоке шедулера
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.pool = parallelism > 1
+                ? Executors.newFixedThreadPool(parallelism, r -> new Thread(r, "accrual-" + threadNumber.incrementAndGet()))
+                : null;
+    }
+
+    public Result accrue(AccrualSlice slice, long tick) {
+        List<CompletableFuture<Integer>> ranges = new ArrayList<>();
+        long afterId = Long.MIN_VALUE;
+        Long upperId;
+        // Границы диапазонов находятся по индексу первичного ключа (keyset), без OFFSET
+        while ((upperId = accountRepository.findChunkUpperBound(
+                afterId, chunkSize, slice.partitions(), slice.owned())) != null) {
+            long fromId = afterId;
+            long toId = upperId;
+            if (pool != null) {
+                ranges.add(CompletableFuture.supplyAsync(() -> accrueRange(fromId, toId, slice, tick), pool));
+            } else {
+                ranges.add(CompletableFuture.completedFuture(accrueRange(fromId, toId, slice, tick)));
+            }
+            afterId = upperId;
+        }
+        int updated = 0;
+        int failed = 0;
+        for (CompletableFuture<Integer> range : ranges) {
+            Integer rangeUpdated = range.join();
+            if (rangeUpdated == null) {
+                failed++;
+            } else {
+                updated += rangeUpdated;
+            }
+        }
+        logger.info("Начисление по {} диапазонам завершено, обновлено счетов: {}, ошибок: {}", ranges.size(), updated, failed);
+        return new Result(updated, failed);
+    }
+
+    private Integer accrueRange(long fromId, long toId, AccrualSlice slice, long tick) {
+        try {
+            int updated = accountRepository.accrueRange(fromId, toId, slice.partitions(), slice.owned(), tick);
+            logger.debug("Диапазон ({}, {}] обработан, обновлено счетов: {}", fromId, toId, updated);
+            return updated;
+        } catch (RuntimeException e) {
+            // Диапазон пропускает этот запуск, остальные диапазоны продолжают работу
+            logger.error("Ошибка начисления для диапазона ({}, {}]: {}", fromId, toId, e.getMessage());
+            return null;
+        }
+    }
+
+    public record Result(int updatedAccounts, int failedRanges) {
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package com.example.userbankingservice.service;
+
+import com.example.userbankingservice.entity.Account;
+import com.example.userbankingservice.entity.PendingTransfer;
+import com.example.userbankingservice.repository.AccountRepository;
+import com.example.userbankingservice.repository.PendingTransferRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Списание выполняется в шарде отправителя, зачисление - в шарде получателя. Между ними перевод хранится
+// в pending_transfer: строка вставляется в транзакции списания и удаляется условным DELETE в транзакции
+// зачисления или возврата, поэтому сумма не теряется при остановке процесса и не двигается дважды.
+// Ключ идемпотентности фиксируется в транзакции списания и завершается вместе со строкой
+@Component
+@ConditionalOnProperty(name = "transfer.mode", havingValue = "SHARDED")
+public class ShardedTransferEngine implements TransferEngine {
+    private static final Logger logger = LoggerFactory.getLogger(ShardedTransferEngine.class);
+    private static final int RECOVERY_BATCH = 1000;
+    private static final int MAX_ERROR_LENGTH = 500;
+    private final AccountRepository accountRepository;
+    private final PendingTransferRepository pendingTransferRepository;
+    private final TransactionRetryExecutor transactionRetryExecutor;
+    private final LazyBalanceAccrual lazyBalanceAccrual;
+    private final TransferJournal transferJournal;
+    private final TransferIdempotencyStore transferIdempotencyStore;
+    private final BalanceStriping balanceStriping;
+    private final ExecutorService[] shards;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+    private final long timeoutMs;
+    private final long recoveryDelayMs;
+
+    public ShardedTransferEngine(AccountRepository accountRepository,
+                                 PendingTransferRepository pendingTransferRepository,
+                                 TransactionRetryExecutor transactionRetryExecutor,
+                                 LazyBalanceAccrual lazyBalanceAccrual,
+                                 TransferJournal transferJournal,
+                                 TransferIdempotencyStore transferIdempotencyStore,
+                                 BalanceStriping balanceStriping,
+                                 @Value("${transfer.sharded.shards:4}") int shardCount,
+                                 @Value("${transfer.sharded.max-in-flight:10000}") int maxInFlight,
+                                 @Value("${transfer.sharded.timeout-ms:5000}") long timeoutMs,
+                                 @Value("${transfer.sharded.recovery-delay-ms:60000}") long recoveryDelayMs) {
+        this.accountRepository = accountRepository;
+        this.pendingTransferRepository = pendingTransferRepository;
+        this.transactionRetryExecutor = transactionRetryExecutor;
+        this.lazyBalanceAccrual = lazyBalanceAccrual;
+        this.transferJournal = transferJournal;
+        this.transferIdempotencyStore = transferIdempotencyStore;
+        this.balanceStriping = balanceStriping;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.maxInFlight = maxInFlight;
+        this.timeoutMs = timeoutMs;
+        this.recoveryDelayMs = recoveryDelayMs;
+        this.shards = new ExecutorService[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            String threadName = "transfer-shard-" + i;
+            shards[i] = Executors.newSingleThreadExecutor(r -> new Thread(r, threadName));
+        }
+        logger.info("Шардированный движок переводов запущен, шардов: {}", shardCount);
+    }
+
+    @Override
+    public void transfer(Long fromUserId, Long toUserId, long amount) {
+        transfer(fromUserId, toUserId, amount, null, null);
+    }
+
+    // false - ключ идемпотентности уже записан, перевод не выполнялся
+    public boolean transfer(Long fromUserId, Long toUserId, long amount, String idempotencyKey, String fingerprint) {
+        // Ограничиваем число незавершенных переводов, очереди шардов не ограничены,
+        // чтобы передача кредита в шард получателя никогда не отклонялась
+        if (!inFlight.tryAcquire()) {
+            logger.error("Превышено число одновременных переводов");
+            throw new RuntimeException("Сервис переводов перегружен, повторите позже");
+        }
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        result.whenComplete((ignored, ex) -> inFlight.release());
+        try {
+            shardFor(fromUserId).execute(() -> debit(fromUserId, toUserId, amount, idempotencyKey, fingerprint, result));
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new RuntimeException("Сервис переводов остановлен"));
+        }
+        return await(result);
+    }
+
+    // Шаг 1: списание в шарде отправителя вместе со строкой pending_transfer, затем передача кредита
+    // в шард получателя
+    private void debit(Long fromUserId, Long toUserId, long amount, String idempotencyKey, String fingerprint,
+                       CompletableFuture<Boolean> result) {
+        PendingTransfer pending;
+        try {
+            pending = transactionRetryExecutor.execute("transfer-debit", () -> {
+                if (idempotencyKey != null && !transferIdempotencyStore.claimPending(fromUserId, idempotencyKey, fingerprint)) {
+                    return null;
+                }
+                Account fromAccount = accountRepository.findByUserIdForUpdate(fromUserId);
+                if (fromAccount == null) {
+                    throw new RuntimeException("Счет не найден");
+                }
+                lazyBalanceAccrual.materialize(fromAccount);
+                balanceStriping.borrow(fromAccount);
+                if (fromAccount.getBalance() < amount) {
+                    logger.error("Недостаточно средств на счете пользователя ID: {}", fromUserId);
+                    throw new RuntimeException("Недостаточно средств");
+                }
+                long balanceBefore = fromAccount.getBalance();
+                fromAccount.setBalance(Money.subtract(balanceBefore, amount));
+                PendingTransfer transfer = new PendingTransfer();
+                transfer.setFromUserId(fromUserId);
+                transfer.setToUserId(toUserId);
+                transfer.setAmount(amount);
+                transfer.setFromBalanceBefore(balanceBefore);
+                transfer.setFromBalanceAfter(fromAccount.getBalance());
+                transfer.setState(PendingTransfer.State.CREDIT);
+                transfer.setIdempotencyKey(idempotencyKey);
+                transfer.setCreatedAt(LocalDateTime.now());
+                return pendingTransferRepository.save(transfer);
+            });
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+        if (pending == null) {
+            result.complete(false);
+            return;
+        }
+        handOff(toUserId, () -> credit(pending, result), result);
+    }
+
+    // Шаг 2: зачисление в шарде получателя, при ошибке сумма возвращается отправителю.
+    // Строка журнала пишется в транзакции зачисления: перевод считается выполненным после нее
+    private void credit(PendingTransfer pending, CompletableFuture<Boolean> result) {
+        Long toUserId = pending.getToUserId();
+        boolean credited;
+        try {
+            credited = transactionRetryExecutor.execute("transfer-credit", () -> {
+                if (pendingTransferRepository.deleteInState(pending.getId(), PendingTransfer.State.CREDIT) == 0) {
+                    return false;
+                }
+                completeKey(pending, null);
+                if (balanceStriping.isStriped(toUserId)) {
+                    balanceStriping.credit(toUserId, pending.getAmount());
+                    transferJournal.append(pending.getFromUserId(), toUserId, pending.getAmount(),
+                            pending.getFromBalanceBefore(), pending.getFromBalanceAfter(), null, null);
+                    return true;
+                }
+                Account toAccount = accountRepository.findByUserIdForUpdate(toUserId);
+                if (toAccount == null) {
+                    throw new RuntimeException("Счет не найден");
+                }
+                lazyBalanceAccrual.materialize(toAccount);
+                long balanceBefore = toAccount.getBalance();
+                toAccount.setBalance(Money.add(balanceBefore, pending.getAmount()));
+                transferJournal.append(pending.getFromUserId(), toUserId, pending.getAmount(),
+                        pending.getFromBalanceBefore(), pending.getFromBalanceAfter(), balanceBefore, toAccount.getBalance());
+                return true;
+            });
+        } catch (RuntimeException e) {
+            logger.error("Зачисление пользователю ID: {} не выполнено, возврат средств пользователю ID: {}",
+                    toUserId, pending.getFromUserId());
+            startRefund(pending, e, result);
+            return;
+        }
+        if (credited) {
+            result.complete(true);
+        } else {
+            completedElsewhere(pending, result);
+        }
+    }
+
+    // Решение о возврате фиксируется до самого возврата: строка REFUND больше не зачисляется получателю,
+    // и если возврат не удастся, его выполнит восстановление
+    private void startRefund(PendingTransfer pending, RuntimeException cause, CompletableFuture<Boolean> result) {
+        String error = errorMessage(cause);
+        int marked;
+        try {
+            marked = transactionRetryExecutor.execute("transfer-refund", () -> pendingTransferRepository.changeState(
+                    pending.getId(), PendingTransfer.State.CREDIT, PendingTransfer.State.REFUND, error));
+        } catch (RuntimeException e) {
+            logger.error("Возврат по переводу {} не сохранен, перевод завершит восстановление: {}",
+                    pending.getId(), e.getMessage());
+            result.completeExceptionally(pendingException());
+            return;
+        }
+        if (marked == 0) {
+            completedElsewhere(pending, result);
+            return;
+        }
+        pending.setState(PendingTransfer.State.REFUND);
+        pending.setError(error);
+        handOff(pending.getFromUserId(), () -> refund(pending, result), result);
+    }
+
+    // Шаг 3 (только при ошибке зачисления): возврат суммы в шарде отправителя
+    private void refund(PendingTransfer pending, CompletableFuture<Boolean> result) {
+        Long fromUserId = pending.getFromUserId();
+        boolean refunded;
+        try {
+            refunded = transactionRetryExecutor.execute("transfer-refund", () -> {
+                if (pendingTransferRepository.deleteInState(pending.getId(), PendingTransfer.State.REFUND) == 0) {
+                    return false;
+                }
+                completeKey(pending, pending.getError());
+                Account fromAccount = accountRepository.findByUserIdForUpdate(fromUserId);
+                if (fromAccount == null) {
+                    throw new RuntimeException("Счет не найден");
+                }
+                lazyBalanceAccrual.materialize(fromAccount);
+                fromAccount.setBalance(Money.add(fromAccount.getBalance(), pending.getAmount()));
+                return true;
+            });
+        } catch (RuntimeException e) {
+            // Строка REFUND остается в pending_transfer
+            logger.error("Не удалось вернуть {} пользователю ID: {}, возврат повторит восстановление: {}",
+                    Money.toDecimal(pending.getAmount()), fromUserId, e.getMessage());
+            result.completeExceptionally(pendingException());
+            return;
+        }
+        if (refunded) {
+            logger.info("Сумма {} возвращена пользователю ID: {}", Money.toDecimal(pending.getAmount()), fromUserId);
+            result.completeExceptionally(new RuntimeException(pending.getError()));
+        } else {
+            completedElsewhere(pending, result);
+        }
+    }
+
+    // Завершает переводы, оставшиеся в pending_transfer дольше recovery-delay-ms: после остановки процесса
+    // между шагами или неудачного возврата. Запускается при старте и затем периодически на каждом узле;
+    // шаги выполняются в шардах, а условный DELETE не дает двум узлам завершить одну строку
+    @Scheduled(initialDelay = 0, fixedDelayString = "${transfer.sharded.recovery-interval-ms:60000}")
+    public void recover() {
+        List<PendingTransfer> stale = pendingTransferRepository.findByCreatedAtBeforeOrderByCreatedAt(
+                LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(recoveryDelayMs)),
+                PageRequest.of(0, RECOVERY_BATCH));
+        if (stale.isEmpty()) {
+            return;
+        }
+        logger.warn("Восстановление незавершенных переводов: {}", stale.size());
+        for (PendingTransfer pending : stale) {
+            CompletableFuture<Boolean> result = new CompletableFuture<>();
+            if (pending.getState() == PendingTransfer.State.CREDIT) {
+                handOff(pending.getToUserId(), () -> credit(pending, result), result);
+            } else {
+                handOff(pending.getFromUserId(), () -> refund(pending, result), result);
+            }
+        }
+    }
+
+    private void completeKey(PendingTransfer pending, String error) {
+        if (pending.getIdempotencyKey() != null) {
+            transferIdempotencyStore.complete(pending.getFromUserId(), pending.getIdempotencyKey(), error);
+        }
+    }
+
+    // После остановки шардов шаг не выполняется, строка остается в pending_transfer до восстановления
+    private void handOff(Long userId, Runnable step, CompletableFuture<Boolean> result) {
+        try {
+            shardFor(userId).execute(step);
+        } catch (RejectedExecutionException e) {
+            logger.error("Шард пользователя ID: {} остановлен, перевод завершит восстановление", userId);
+            result.completeExceptionally(pendingException());
+        }
+    }
+
+    // Строку завершил другой поток или узел (восстановление): исход известен только ему
+    private void completedElsewhere(PendingTransfer pending, CompletableFuture<Boolean> result) {
+        logger.warn("Перевод {} уже завершен восстановлением", pending.getId());
+        result.completeExceptionally(pendingException());
+    }
+
+    private static TransferPendingException pendingException() {
+        return new TransferPendingException("Перевод принят, но еще не завершен");
+    }
+
+    private static String errorMessage(RuntimeException e) {
+        String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+
+    private ExecutorService shardFor(Long userId) {
+        return shards[Math.floorMod(userId, shards.length)];
+    }
+
+    private boolean await(CompletableFuture<Boolean> result) {
+        try {
+            return result.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (TimeoutException e) {
+            // Шаги перевода остаются в очередях шардов и обычно выполняются позже, поэтому это не отказ
+            logger.error("Перевод не подтвержден за {} мс", timeoutMs);
+            throw pendingException();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw pendingException();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Даем завершиться начатым переводам; незавершенные останутся в pending_transfer
+        inFlight.tryAcquire(maxInFlight, timeoutMs, TimeUnit.MILLISECONDS);
+        for (ExecutorService shard : shards) {
+            shard.shutdown();
+        }
+        for (ExecutorService shard : shards) {
+            shard.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
+        }
+    }
+}
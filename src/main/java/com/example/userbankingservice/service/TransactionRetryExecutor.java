@@ -0,0 +1,76 @@
+package com.example.userbankingservice.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+@Component
+public class TransactionRetryExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(TransactionRetryExecutor.class);
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long backoffMs;
+
+    public TransactionRetryExecutor(TransactionTemplate transactionTemplate,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${transfer.retry.max-attempts:3}") int maxAttempts,
+                                    @Value("${transfer.retry.backoff-ms:20}") long backoffMs) {
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = maxAttempts;
+        this.backoffMs = backoffMs;
+    }
+
+    public void execute(String operation, Runnable action) {
+        execute(operation, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    // Выполняет действие в отдельной транзакции, повторяя его при ошибках сериализации,
+    // взаимоблокировках и таймаутах ожидания блокировки
+    public <T> T execute(String operation, Supplier<T> action) {
+        return execute("transfer", operation, action);
+    }
+
+    // То же с метриками повторов под своим префиксом (<metric>.retries), чтобы фоновые операции
+    // не смешивались с переводами
+    public <T> T execute(String metric, String operation, Supplier<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (ConcurrencyFailureException e) {
+                String reason = e.getClass().getSimpleName();
+                if (attempt >= maxAttempts) {
+                    meterRegistry.counter(metric + ".retries.exhausted", "operation", operation, "reason", reason).increment();
+                    logger.error("Операция {} не выполнена после {} попыток: {}", operation, attempt, e.getMessage());
+                    throw e;
+                }
+                meterRegistry.counter(metric + ".retries", "operation", operation, "reason", reason).increment();
+                logger.warn("Конфликт при выполнении {} (попытка {} из {}): {}", operation, attempt, maxAttempts, reason);
+                sleepBeforeRetry(attempt);
+            }
+        }
+    }
+
+    // Экспоненциальная задержка со случайным разбросом, чтобы конфликтующие запросы не повторялись синхронно
+    private void sleepBeforeRetry(int attempt) {
+        long delay = backoffMs << (attempt - 1);
+        long jittered = ThreadLocalRandom.current().nextLong(delay / 2, delay + delay / 2 + 1);
+        try {
+            Thread.sleep(jittered);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Операция прервана");
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.userbankingservice.service;
+
+import java.math.BigDecimal;
+
+public record TransferBatchItem(Long toUserId, BigDecimal amount) {
+}
@@ -0,0 +1,8 @@
+package com.example.userbankingservice.service;
+
+public enum TransferBatchMode {
+    // Все переводы пакета выполняются или отклоняются вместе
+    ATOMIC,
+    // Отклоняются только невыполнимые переводы, остальные фиксируются
+    BEST_EFFORT
+}
@@ -0,0 +1,9 @@
+package com.example.userbankingservice.service;
+
+import java.util.List;
+
+// Результаты в порядке элементов запроса; error заполнен только у отклоненных переводов
+public record TransferBatchResult(int applied, int rejected, List<ItemResult> items) {
+    public record ItemResult(int index, Long toUserId, boolean applied, String error) {
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.userbankingservice.service;
+
+public interface TransferEngine {
+    // Сумма в копейках
+    void transfer(Long fromUserId, Long toUserId, long amount);
+}
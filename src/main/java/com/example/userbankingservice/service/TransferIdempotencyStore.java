@@ -0,0 +1,107 @@
+package com.example.userbankingservice.service;
+
+import com.example.userbankingservice.entity.TransferIdempotency;
+import com.example.userbankingservice.repository.TransferIdempotencyRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+
+// Результаты переводов по ключу идемпотентности. Таблица transfer_idempotency - источник истины,
+// перед ней ограниченный кеш недавних результатов: записанный результат не меняется, поэтому
+// кеш не нужно сбрасывать и на других узлах. Незавершенные переводы SHARDED в кеш не попадают
+@Component
+public class TransferIdempotencyStore {
+    private static final Logger logger = LoggerFactory.getLogger(TransferIdempotencyStore.class);
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private final TransferIdempotencyRepository repository;
+    private final Cache<TransferIdempotency.Key, Outcome> recent;
+    private final Duration ttl;
+
+    public TransferIdempotencyStore(TransferIdempotencyRepository repository,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${transfer.idempotency.cache-size:100000}") long cacheSize,
+                                    @Value("${transfer.idempotency.ttl:24h}") Duration ttl) {
+        this.repository = repository;
+        this.ttl = ttl;
+        this.recent = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, recent, "transferIdempotency");
+    }
+
+    public static void checkKey(String idempotencyKey) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new RuntimeException("Ключ идемпотентности должен содержать от 1 до " + MAX_KEY_LENGTH + " символов");
+        }
+    }
+
+    // Параметры перевода, с которыми ключ может быть повторен; сумма без незначащих нулей
+    public static String fingerprint(Long toUserId, BigDecimal amount) {
+        return toUserId + ":" + amount.stripTrailingZeros().toPlainString();
+    }
+
+    public Optional<Outcome> find(Long userId, String idempotencyKey) {
+        TransferIdempotency.Key key = new TransferIdempotency.Key(userId, idempotencyKey);
+        Outcome outcome = recent.getIfPresent(key);
+        if (outcome != null) {
+            return Optional.of(outcome);
+        }
+        Optional<Outcome> stored = repository.findById(key)
+                .map(row -> new Outcome(row.getFingerprint(), row.getError(), row.isPending()));
+        stored.filter(value -> !value.pending()).ifPresent(value -> recent.put(key, value));
+        return stored;
+    }
+
+    // Вызывается в транзакции перевода до блокировки счетов: ключ фиксируется вместе с изменением балансов.
+    // false - ключ уже записан, перевод выполнять нельзя
+    public boolean claim(Long userId, String idempotencyKey, String fingerprint) {
+        return repository.insertIfAbsent(userId, idempotencyKey, fingerprint, null) == 1;
+    }
+
+    // Вызывается в транзакции списания перевода SHARDED; результат записывает complete
+    public boolean claimPending(Long userId, String idempotencyKey, String fingerprint) {
+        return repository.insertPendingIfAbsent(userId, idempotencyKey, fingerprint) == 1;
+    }
+
+    // Вызывается в транзакции зачисления (error = null) или возврата перевода SHARDED
+    public void complete(Long userId, String idempotencyKey, String error) {
+        repository.complete(userId, idempotencyKey, error);
+    }
+
+    // Вызывается после фиксации транзакции перевода
+    public void succeeded(Long userId, String idempotencyKey, String fingerprint) {
+        recent.put(new TransferIdempotency.Key(userId, idempotencyKey), new Outcome(fingerprint, null, false));
+    }
+
+    // Отказ записывается в отдельной транзакции после отката перевода
+    public void failed(Long userId, String idempotencyKey, String fingerprint, String error) {
+        if (repository.insertIfAbsent(userId, idempotencyKey, fingerprint, error) == 1) {
+            recent.put(new TransferIdempotency.Key(userId, idempotencyKey), new Outcome(fingerprint, error, false));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${transfer.idempotency.purge-interval-ms:3600000}",
+            initialDelayString = "${transfer.idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        int deleted = repository.deleteOlderThan(ttl.toMillis());
+        logger.info("Удалено ключей идемпотентности переводов: {}", deleted);
+    }
+
+    // Результат первого запроса с ключом: параметры перевода и сообщение отказа (null - перевод выполнен);
+    // pending - перевод SHARDED еще не завершен
+    public record Outcome(String fingerprint, String error, boolean pending) {
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.userbankingservice.service;
+
+import com.example.userbankingservice.entity.TransferJournalEntry;
+import com.example.userbankingservice.repository.TransferJournalRepository;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+// Журнал переводов: строка пишется в транзакции перевода и фиксируется вместе с ним, поэтому перевод без строки
+// журнала (и строка без перевода) невозможен. Вставки откладываются до сброса контекста при фиксации и уходят
+// JDBC-пакетами (hibernate.jdbc.batch_size), так что пакетный перевод пишет все свои строки одной группой.
+// Ошибка записи откатывает перевод
+@Component
+public class TransferJournal {
+    private final TransferJournalRepository repository;
+
+    public TransferJournal(TransferJournalRepository repository) {
+        this.repository = repository;
+    }
+
+    // Вызывается в транзакции перевода. Суммы в копейках
+    public void append(Long fromUserId, Long toUserId, long amount,
+                       long fromBalanceBefore, long fromBalanceAfter,
+                       Long toBalanceBefore, Long toBalanceAfter) {
+        TransferJournalEntry entry = new TransferJournalEntry();
+        entry.setFromUserId(fromUserId);
+        entry.setToUserId(toUserId);
+        entry.setAmount(amount);
+        entry.setFromBalanceBefore(fromBalanceBefore);
+        entry.setFromBalanceAfter(fromBalanceAfter);
+        entry.setToBalanceBefore(toBalanceBefore);
+        entry.setToBalanceAfter(toBalanceAfter);
+        entry.setCreatedAt(LocalDateTime.now());
+        repository.save(entry);
+    }
+}
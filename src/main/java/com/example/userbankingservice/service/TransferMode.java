@@ -0,0 +1,12 @@
+package com.example.userbankingservice.service;
+
+public enum TransferMode {
+    // Классический путь: транзакция и блокировки строк счетов в запросе пользователя
+    PESSIMISTIC,
+    // Счета читаются без блокировок, конфликт версий повторяется; счета с частыми конфликтами - с блокировками
+    OPTIMISTIC,
+    // Проверка средств, списание и зачисление одним условным UPDATE; несовместим с accrual.mode LAZY
+    STATEMENT,
+    // Счета разбиты на шарды, каждый шард обслуживает один поток-владелец
+    SHARDED
+}
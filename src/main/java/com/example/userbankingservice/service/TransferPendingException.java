@@ -0,0 +1,9 @@
+package com.example.userbankingservice.service;
+
+// Перевод SHARDED принят, но не завершен за отведенное время: списание, зачисление или возврат еще ждут
+// в очереди шарда или в pending_transfer. Это не отказ: повтор без ключа идемпотентности спишет сумму еще раз
+public class TransferPendingException extends RuntimeException {
+    public TransferPendingException(String message) {
+        super(message);
+    }
+}
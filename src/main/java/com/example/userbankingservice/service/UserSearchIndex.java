@@ -0,0 +1,260 @@
+package com.example.userbankingservice.service;
+
+import com.example.userbankingservice.cache.CacheInvalidation;
+import com.example.userbankingservice.cache.CacheInvalidationBus;
+import com.example.userbankingservice.repository.EmailDataRepository;
+import com.example.userbankingservice.repository.PhoneDataRepository;
+import com.example.userbankingservice.repository.UserContactRow;
+import com.example.userbankingservice.repository.UserRepository;
+import com.example.userbankingservice.repository.UserSearchRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Индекс поиска пользователей в памяти: упорядоченное по (имя, ID) множество для префикса имени,
+// хеш-таблицы для точного email и телефона, упорядоченная карта дат рождения для условия "позже даты".
+// Изменения применяются построчно после фиксации транзакции, на других узлах - по сообщению через шину кеша
+@Component
+public class UserSearchIndex {
+    private static final Logger logger = LoggerFactory.getLogger(UserSearchIndex.class);
+    private static final String INDEX_INVALIDATION = "users:search-index";
+    private static final Comparator<Entry> NAME_ORDER = Comparator.comparing(Entry::name).thenComparing(Entry::id);
+
+    private final UserRepository userRepository;
+    private final EmailDataRepository emailDataRepository;
+    private final PhoneDataRepository phoneDataRepository;
+    private final CacheInvalidationBus invalidationBus;
+    private final boolean enabled;
+    private final String origin = UUID.randomUUID().toString();
+    // Изменения индекса выполняются по одному, чтение идет без блокировок
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private final Map<Long, Entry> users = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Entry> byName = new ConcurrentSkipListSet<>(NAME_ORDER);
+    private final ConcurrentSkipListMap<LocalDate, Set<Long>> byDateOfBirth = new ConcurrentSkipListMap<>();
+    private final Map<String, Long> byEmail = new ConcurrentHashMap<>();
+    private final Map<String, Long> byPhone = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    public UserSearchIndex(UserRepository userRepository,
+                           EmailDataRepository emailDataRepository,
+                           PhoneDataRepository phoneDataRepository,
+                           CacheInvalidationBus invalidationBus,
+                           @Value("${search.index.enabled:false}") boolean enabled) {
+        this.userRepository = userRepository;
+        this.emailDataRepository = emailDataRepository;
+        this.phoneDataRepository = phoneDataRepository;
+        this.invalidationBus = invalidationBus;
+        this.enabled = enabled;
+        invalidationBus.subscribe(invalidation -> {
+            if (INDEX_INVALIDATION.equals(invalidation.cacheName()) && !origin.equals(invalidation.origin())
+                    && invalidation.key() instanceof Long userId) {
+                refreshUser(userId);
+            }
+        });
+    }
+
+    // Пока индекс не загружен, поиск выполняется в базе
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        long startedAt = System.currentTimeMillis();
+        writeLock.lock();
+        try {
+            ready = false;
+            users.clear();
+            byName.clear();
+            byDateOfBirth.clear();
+            byEmail.clear();
+            byPhone.clear();
+            Map<Long, Set<String>> emails = groupByUser(emailDataRepository.findAllContactRows());
+            Map<Long, Set<String>> phones = groupByUser(phoneDataRepository.findAllContactRows());
+            for (UserSearchRow row : userRepository.findAllSearchRows()) {
+                add(new Entry(row.getId(), row.getName(), row.getDateOfBirth(),
+                        emails.getOrDefault(row.getId(), Set.of()), phones.getOrDefault(row.getId(), Set.of())));
+            }
+            ready = true;
+        } finally {
+            writeLock.unlock();
+        }
+        logger.info("Индекс поиска загружен: {} пользователей за {} мс", users.size(), System.currentTimeMillis() - startedAt);
+    }
+
+    // Повторная загрузка, если индекс был отключен из-за ошибки обновления
+    @Scheduled(fixedDelayString = "${search.index.reload-interval-ms:300000}",
+            initialDelayString = "${search.index.reload-interval-ms:300000}")
+    public void reloadIfDisabled() {
+        if (enabled && !ready) {
+            try {
+                load();
+            } catch (RuntimeException e) {
+                logger.error("Не удалось загрузить индекс поиска: {}", e.getMessage());
+            }
+        }
+    }
+
+    // Вызывается из методов, меняющих данные пользователя
+    public void userChanged(Long userId) {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refreshAndPublish(userId);
+                }
+            });
+        } else {
+            refreshAndPublish(userId);
+        }
+    }
+
+    private void refreshAndPublish(Long userId) {
+        refreshUser(userId);
+        invalidationBus.publish(new CacheInvalidation(origin, INDEX_INVALIDATION, userId));
+    }
+
+    // Перечитывает одного пользователя из базы и заменяет его запись в индексе
+    void refreshUser(Long userId) {
+        if (!enabled) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            remove(users.get(userId));
+            userRepository.findSearchRowById(userId).ifPresent(row -> add(new Entry(row.getId(), row.getName(),
+                    row.getDateOfBirth(),
+                    Set.copyOf(emailDataRepository.findValuesByUserId(userId)),
+                    Set.copyOf(phoneDataRepository.findValuesByUserId(userId)))));
+        } catch (RuntimeException e) {
+            // Без актуальной записи индекс мог бы вернуть неверный результат, поэтому поиск уходит в базу
+            ready = false;
+            logger.error("Не удалось обновить индекс поиска для пользователя ID: {}, индекс отключен: {}", userId, e.getMessage());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Те же условия, что и у поиска в базе: префикс имени, точный email и телефон, дата рождения строго позже
+    public Result search(String name, String email, String phone, LocalDate dateOfBirth, int page, int size) {
+        if (email != null || phone != null) {
+            Long userId = email != null ? byEmail.get(email) : byPhone.get(phone);
+            Entry entry = userId != null ? users.get(userId) : null;
+            return paginate(entry != null ? List.of(entry) : List.of(), name, email, phone, dateOfBirth, page, size);
+        }
+        if (name != null) {
+            return paginate(byName.tailSet(new Entry(Long.MIN_VALUE, name, null, Set.of(), Set.of())),
+                    name, null, null, dateOfBirth, page, size);
+        }
+        if (dateOfBirth != null) {
+            List<Entry> matches = new ArrayList<>();
+            for (Set<Long> ids : byDateOfBirth.tailMap(dateOfBirth, false).values()) {
+                for (Long id : ids) {
+                    Entry entry = users.get(id);
+                    if (entry != null) {
+                        matches.add(entry);
+                    }
+                }
+            }
+            matches.sort(NAME_ORDER);
+            return paginate(matches, null, null, null, dateOfBirth, page, size);
+        }
+        return paginate(byName, null, null, null, null, page, size);
+    }
+
+    // Обходит кандидатов в порядке (имя, ID), считает совпадения и собирает ID запрошенной страницы.
+    // Для префикса имени обход заканчивается на первом имени без этого префикса
+    private Result paginate(Iterable<Entry> ordered, String name, String email, String phone, LocalDate dateOfBirth,
+                            int page, int size) {
+        long from = (long) page * size;
+        long to = from + size;
+        long total = 0;
+        List<Long> ids = new ArrayList<>(size);
+        for (Entry entry : ordered) {
+            if (name != null && !entry.name().startsWith(name)) {
+                break;
+            }
+            if (matches(entry, email, phone, dateOfBirth)) {
+                if (total >= from && total < to) {
+                    ids.add(entry.id());
+                }
+                total++;
+            }
+        }
+        return new Result(ids, total);
+    }
+
+    private static boolean matches(Entry entry, String email, String phone, LocalDate dateOfBirth) {
+        return (email == null || entry.emails().contains(email))
+                && (phone == null || entry.phones().contains(phone))
+                && (dateOfBirth == null || entry.dateOfBirth() != null && entry.dateOfBirth().isAfter(dateOfBirth));
+    }
+
+    private void add(Entry entry) {
+        users.put(entry.id(), entry);
+        byName.add(entry);
+        if (entry.dateOfBirth() != null) {
+            byDateOfBirth.computeIfAbsent(entry.dateOfBirth(), date -> ConcurrentHashMap.newKeySet()).add(entry.id());
+        }
+        entry.emails().forEach(email -> byEmail.put(email, entry.id()));
+        entry.phones().forEach(phone -> byPhone.put(phone, entry.id()));
+    }
+
+    private void remove(Entry entry) {
+        if (entry == null) {
+            return;
+        }
+        users.remove(entry.id());
+        byName.remove(entry);
+        if (entry.dateOfBirth() != null) {
+            byDateOfBirth.computeIfPresent(entry.dateOfBirth(), (date, ids) -> {
+                ids.remove(entry.id());
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+        entry.emails().forEach(email -> byEmail.remove(email, entry.id()));
+        entry.phones().forEach(phone -> byPhone.remove(phone, entry.id()));
+    }
+
+    private static Map<Long, Set<String>> groupByUser(List<UserContactRow> rows) {
+        Map<Long, Set<String>> result = new HashMap<>();
+        for (UserContactRow row : rows) {
+            result.computeIfAbsent(row.getUserId(), id -> new HashSet<>()).add(row.getContact());
+        }
+        return result;
+    }
+
+    private record Entry(Long id, String name, LocalDate dateOfBirth, Set<String> emails, Set<String> phones) {
+    }
+
+    // ID пользователей страницы в порядке (имя, ID) и общее число совпадений
+    public record Result(List<Long> ids, long total) {
+    }
+}
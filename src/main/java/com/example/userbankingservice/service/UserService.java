@@ -1,20 +1,27 @@
 package com.example.userbankingservice.service;
 
-import com.example.userbankingservice.entity.User;
 import org.springframework.data.domain.Page;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface UserService {
-    Optional<User> findByEmail(String email);
-    Optional<User> findByPhone(String phone);
-    User getUserById(Long id);
+    Optional<UserSummary> findByEmail(String email);
+    Optional<UserSummary> findByPhone(String phone);
+    UserSummary getUserById(Long id);
+    UserView getUserView(Long id);
+    Map<Long, BigDecimal> balances(Collection<Long> userIds);
     void updateEmail(Long userId, String email);
     void deleteEmail(Long userId, String email);
     void updatePhone(Long userId, String phone);
     void deletePhone(Long userId, String phone);
-    Page<User> searchUsers(String name, String email, String phone, LocalDate dateOfBirth, int page, int size);
+    Page<UserView> searchUsers(String name, String email, String phone, LocalDate dateOfBirth, int page, int size);
+    CursorSlice<UserView> searchUsersByCursor(String name, String email, String phone, LocalDate dateOfBirth, String cursor, int size);
     void transferMoney(Long fromUserId, Long toUserId, BigDecimal amount);
+    void transferMoney(Long fromUserId, Long toUserId, BigDecimal amount, String idempotencyKey);
+    TransferBatchResult transferBatch(Long fromUserId, List<TransferBatchItem> items, TransferBatchMode mode);
 }
\ No newline at end of file
@@ -1,21 +1,43 @@
 package com.example.userbankingservice.service;
 
+import com.example.userbankingservice.cache.UserCacheIndex;
 import com.example.userbankingservice.entity.*;
 import com.example.userbankingservice.repository.*;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.criteria.JoinType;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -25,32 +47,71 @@ public class UserServiceImpl implements UserService {
     private final AccountRepository accountRepository;
     private final EmailDataRepository emailDataRepository;
     private final PhoneDataRepository phoneDataRepository;
+    private final TransactionRetryExecutor transactionRetryExecutor;
+    private final LazyBalanceAccrual lazyBalanceAccrual;
+    private final ObjectProvider<ShardedTransferEngine> shardedTransferEngine;
+    private final UserCacheIndex userCacheIndex;
+    private final UserSearchIndex userSearchIndex;
+    private final TransferIdempotencyStore transferIdempotencyStore;
+    private final TransferJournal transferJournal;
+    private final BalanceStriping balanceStriping;
+    private final AccountContentionTracker accountContentionTracker;
+
+    @Value("${transfer.mode:PESSIMISTIC}")
+    private TransferMode transferMode;
+
+    @Value("${search.max-page-size:100}")
+    private int maxPageSize;
+
+    @Value("${transfer.batch.max-items:1000}")
+    private int maxBatchItems;
+
+    // Условный UPDATE сравнивает баланс строки, а в ленивом режиме начисления в строку еще не записаны
+    @PostConstruct
+    void checkTransferMode() {
+        if (transferMode == TransferMode.STATEMENT && lazyBalanceAccrual.isEnabled()) {
+            throw new IllegalStateException("transfer.mode STATEMENT несовместим с accrual.mode LAZY");
+        }
+    }
 
     @Override
     @Cacheable(value = "users", key = "#email")
-    public Optional<User> findByEmail(String email) {
+    public Optional<UserSummary> findByEmail(String email) {
         logger.debug("Поиск пользователя по email: {}", email);
         return emailDataRepository.findByEmail(email)
-                .map(EmailData::getUser);
+                .map(emailData -> summaryOf(emailData.getUser()));
     }
 
     @Override
     @Cacheable(value = "users", key = "#phone")
-    public Optional<User> findByPhone(String phone) {
+    public Optional<UserSummary> findByPhone(String phone) {
         logger.debug("Поиск пользователя по телефону: {}", phone);
         return phoneDataRepository.findByPhone(phone)
-                .map(PhoneData::getUser);
+                .map(phoneData -> summaryOf(phoneData.getUser()));
     }
 
     @Override
     @Cacheable(value = "users", key = "#id")
-    public User getUserById(Long id) {
+    public UserSummary getUserById(Long id) {
         logger.info("Получение пользователя с ID: {}", id);
+        return summaryOf(findUser(id));
+    }
+
+    private User findUser(Long id) {
         return userRepository.findById(id).orElseThrow(() -> new RuntimeException("Пользователь не найден"));
     }
 
+    private static UserSummary summaryOf(User user) {
+        return new UserSummary(user.getId(), user.getName(), user.getDateOfBirth());
+    }
+
+    @Override
+    public UserView getUserView(Long id) {
+        logger.info("Получение данных пользователя с ID: {}", id);
+        return toViews(List.of(findUser(id))).get(0);
+    }
+
     @Override
-    @CacheEvict(value = "users", key = "#userId")
     @Transactional
     public void updateEmail(Long userId, String email) {
         logger.debug("Обновление email для пользователя ID: {}, новый email: {}", userId, email);
@@ -60,14 +121,14 @@ public class UserServiceImpl implements UserService {
         }
         EmailData emailData = new EmailData();
         emailData.setEmail(email);
-        emailData.setUser(getUserById(userId));
-        emailData.setId(generateId());
+        emailData.setUser(findUser(userId));
         emailDataRepository.save(emailData);
+        userCacheIndex.evictUser(userId, email);
+        userSearchIndex.userChanged(userId);
         logger.info("Email {} успешно добавлен для пользователя ID: {}", email, userId);
     }
 
     @Override
-    @CacheEvict(value = "users", key = "#userId")
     @Transactional
     public void deleteEmail(Long userId, String email) {
         logger.debug("Удаление email {} для пользователя ID: {}", email, userId);
@@ -82,11 +143,12 @@ public class UserServiceImpl implements UserService {
             throw new RuntimeException("Требуется хотя бы один email");
         }
         emailDataRepository.delete(emailData);
+        userCacheIndex.evictUser(userId, email);
+        userSearchIndex.userChanged(userId);
         logger.info("Email {} успешно удален для пользователя ID: {}", email, userId);
     }
 
     @Override
-    @CacheEvict(value = "users", key = "#userId")
     @Transactional
     public void updatePhone(Long userId, String phone) {
         logger.debug("Обновление телефона для пользователя ID: {}, новый телефон: {}", userId, phone);
@@ -96,14 +158,14 @@ public class UserServiceImpl implements UserService {
         }
         PhoneData phoneData = new PhoneData();
         phoneData.setPhone(phone);
-        phoneData.setUser(getUserById(userId));
-        phoneData.setId(generateId());
+        phoneData.setUser(findUser(userId));
         phoneDataRepository.save(phoneData);
+        userCacheIndex.evictUser(userId, phone);
+        userSearchIndex.userChanged(userId);
         logger.info("Телефон {} успешно добавлен для пользователя ID: {}", phone, userId);
     }
 
     @Override
-    @CacheEvict(value = "users", key = "#userId")
     @Transactional
     public void deletePhone(Long userId, String phone) {
         logger.debug("Удаление телефона {} для пользователя ID: {}", phone, userId);
@@ -118,14 +180,113 @@ public class UserServiceImpl implements UserService {
             throw new RuntimeException("Требуется хотя бы один телефон");
         }
         phoneDataRepository.delete(phoneData);
+        userCacheIndex.evictUser(userId, phone);
+        userSearchIndex.userChanged(userId);
         logger.info("Телефон {} успешно удален для пользователя ID: {}", phone, userId);
     }
 
     @Override
-    @Cacheable(value = "userSearch", key = "{#name, #email, #phone, #dateOfBirth, #page, #size}")
-    public Page<User> searchUsers(String name, String email, String phone, LocalDate dateOfBirth, int page, int size) {
+    @Cacheable(value = "userSearch", key = "T(com.example.userbankingservice.cache.SearchKey).page(#name, #email, #phone, #dateOfBirth, #page, #size)")
+    public Page<UserView> searchUsers(String name, String email, String phone, LocalDate dateOfBirth, int page, int size) {
         logger.info("Поиск пользователей с параметрами: name={}, email={}, phone={}, dateOfBirth={}, page={}, size={}",
                 name, email, phone, dateOfBirth, page, size);
+        checkPageSize(size);
+        if (userSearchIndex.isReady()) {
+            // Индекс в памяти определяет ID страницы и общее число, из базы читается только страница по первичному ключу
+            UserSearchIndex.Result found = userSearchIndex.search(name, email, phone, dateOfBirth, page, size);
+            List<User> content = findAllInOrder(found.ids());
+            logger.info("Найдено {} пользователей (индекс)", found.total());
+            return new PageImpl<>(toViews(content), PageRequest.of(page, size), found.total());
+        }
+        Specification<User> spec = searchSpecification(name, email, phone, dateOfBirth).and(fetchAccount());
+        Page<User> result = userRepository.findAll(spec, PageRequest.of(page, size));
+        logger.info("Найдено {} пользователей", result.getTotalElements());
+        return new PageImpl<>(toViews(result.getContent()), result.getPageable(), result.getTotalElements());
+    }
+
+    @Override
+    @Cacheable(value = "userSearch", key = "T(com.example.userbankingservice.cache.SearchKey).cursor(#name, #email, #phone, #dateOfBirth, #cursor, #size)")
+    public CursorSlice<UserView> searchUsersByCursor(String name, String email, String phone, LocalDate dateOfBirth, String cursor, int size) {
+        logger.info("Поиск пользователей по курсору: name={}, email={}, phone={}, dateOfBirth={}, size={}",
+                name, email, phone, dateOfBirth, size);
+        checkPageSize(size);
+        ScrollPosition position = cursor == null ? ScrollPosition.keyset() : SearchCursor.decode(cursor);
+        // Порядок (name, id) однозначен, следующая страница начинается строго после последней строки
+        // текущей, без OFFSET и без подсчета общего числа строк
+        Window<User> window = userRepository.findBy(
+                searchSpecification(name, email, phone, dateOfBirth).and(fetchAccount()),
+                query -> query.sortBy(Sort.by("name", "id")).limit(size).scroll(position));
+        List<User> content = window.getContent();
+        String nextCursor = null;
+        if (window.hasNext() && !content.isEmpty()) {
+            User last = content.get(content.size() - 1);
+            nextCursor = SearchCursor.encode(last.getName(), last.getId());
+        }
+        logger.info("Найдено {} пользователей, есть продолжение: {}", content.size(), nextCursor != null);
+        return new CursorSlice<>(toViews(content), nextCursor, nextCursor != null);
+    }
+
+    private List<User> findAllInOrder(List<Long> ids) {
+        Map<Long, User> loaded = userRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        return ids.stream().map(loaded::get).filter(Objects::nonNull).toList();
+    }
+
+    // Размер страницы ограничен, чтобы число и объем запросов на страницу не зависели от запроса клиента
+    private void checkPageSize(int size) {
+        if (size <= 0 || size > maxPageSize) {
+            throw new RuntimeException("Размер страницы должен быть от 1 до " + maxPageSize);
+        }
+    }
+
+    // Контакты всей страницы загружаются двумя запросами по списку ID, поэтому число запросов не зависит
+    // от размера страницы. Баланс в представление не входит: оно кешируется до изменения контактов,
+    // а баланс меняется каждым переводом и начислением и читается при ответе (balances)
+    private List<UserView> toViews(List<User> users) {
+        if (users.isEmpty()) {
+            return List.of();
+        }
+        List<Long> userIds = users.stream().map(User::getId).toList();
+        Map<Long, List<String>> emails = groupContacts(emailDataRepository.findContactRowsByUserIdIn(userIds));
+        Map<Long, List<String>> phones = groupContacts(phoneDataRepository.findContactRowsByUserIdIn(userIds));
+        return users.stream()
+                .map(user -> new UserView(user.getId(), user.getName(), user.getDateOfBirth(),
+                        emails.getOrDefault(user.getId(), List.of()),
+                        phones.getOrDefault(user.getId(), List.of()),
+                        null))
+                .toList();
+    }
+
+    // Текущие балансы пользователей одним запросом (счета загружаются вместе с пользователями);
+    // пользователя без счета в результате нет
+    @Override
+    public Map<Long, BigDecimal> balances(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return Map.of();
+        }
+        List<Account> accounts = userRepository.findAllById(userIds).stream()
+                .map(User::getAccount)
+                .filter(Objects::nonNull)
+                .toList();
+        Map<Long, Long> stripeTotals = balanceStriping.stripeTotals(accounts);
+        Map<Long, BigDecimal> balances = new HashMap<>();
+        accounts.forEach(account -> balances.put(account.getUser().getId(), balance(account, stripeTotals)));
+        return balances;
+    }
+
+    // Баланс с начислениями плюс зачисления, еще не перенесенные из полос в строку счета
+    private BigDecimal balance(Account account, Map<Long, Long> stripeTotals) {
+        long balance = lazyBalanceAccrual.effectiveBalance(account);
+        Long striped = stripeTotals.get(account.getId());
+        return Money.toDecimal(striped != null ? Money.add(balance, striped) : balance);
+    }
+
+    private static Map<Long, List<String>> groupContacts(List<UserContactRow> rows) {
+        return rows.stream().collect(Collectors.groupingBy(UserContactRow::getUserId,
+                Collectors.mapping(UserContactRow::getContact, Collectors.toList())));
+    }
+
+    private Specification<User> searchSpecification(String name, String email, String phone, LocalDate dateOfBirth) {
         Specification<User> spec = Specification.where(null);
         if (name != null) {
             spec = spec.and((root, query, cb) -> cb.like(root.get("name"), name + "%"));
@@ -139,43 +300,343 @@ public class UserServiceImpl implements UserService {
         if (dateOfBirth != null) {
             spec = spec.and((root, query, cb) -> cb.greaterThan(root.get("dateOfBirth"), dateOfBirth));
         }
-        Page<User> result = userRepository.findAll(spec, PageRequest.of(page, size));
-        logger.info("Найдено {} пользователей", result.getTotalElements());
-        return result;
+        return spec;
+    }
+
+    // Счет загружается в том же запросе, иначе обратная связь OneToOne дает отдельный запрос на каждого пользователя.
+    // Запрос подсчета строк остается без join
+    private static Specification<User> fetchAccount() {
+        return (root, query, cb) -> {
+            if (User.class.equals(query.getResultType())) {
+                root.fetch("account", JoinType.LEFT);
+            }
+            return null;
+        };
     }
 
     @Override
-    @CacheEvict(value = "accounts", allEntries = true)
-    @Transactional
     public void transferMoney(Long fromUserId, Long toUserId, BigDecimal amount) {
         logger.info("Перевод денег от пользователя ID: {} к пользователю ID: {}, сумма: {}", fromUserId, toUserId, amount);
         if (amount.compareTo(BigDecimal.ZERO) <= 0) {
             logger.error("Сумма перевода должна быть положительной: {}", amount);
             throw new RuntimeException("Сумма должна быть положительной");
         }
-        Account fromAccount = accountRepository.findByUserIdForUpdate(fromUserId);
+        if (fromUserId.equals(toUserId)) {
+            logger.error("Перевод самому себе запрещен: {}", fromUserId);
+            throw new RuntimeException("Перевод самому себе запрещен");
+        }
+        // Дальше сумма в копейках
+        long minorAmount = Money.fromDecimal(amount);
+        if (transferMode == TransferMode.SHARDED) {
+            shardedTransferEngine.getObject().transfer(fromUserId, toUserId, minorAmount);
+        } else {
+            transactionRetryExecutor.execute("transfer", () -> transferInMode(fromUserId, toUserId, minorAmount));
+        }
+        logger.info("Перевод успешно выполнен: {} от ID: {} к ID: {}", amount, fromUserId, toUserId);
+    }
+
+    @Override
+    public void transferMoney(Long fromUserId, Long toUserId, BigDecimal amount, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            transferMoney(fromUserId, toUserId, amount);
+            return;
+        }
+        logger.info("Перевод денег от пользователя ID: {} к пользователю ID: {}, сумма: {}, ключ идемпотентности: {}",
+                fromUserId, toUserId, amount, idempotencyKey);
+        TransferIdempotencyStore.checkKey(idempotencyKey);
+        if (amount == null || toUserId == null) {
+            throw new RuntimeException("Не указан получатель или сумма");
+        }
+        String fingerprint = TransferIdempotencyStore.fingerprint(toUserId, amount);
+        // Повтор завершенного запроса получает сохраненный результат без блокировки счетов
+        Optional<TransferIdempotencyStore.Outcome> previous = transferIdempotencyStore.find(fromUserId, idempotencyKey);
+        if (previous.isPresent()) {
+            replay(previous.get(), fingerprint, idempotencyKey);
+            return;
+        }
+        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            logger.error("Сумма перевода должна быть положительной: {}", amount);
+            throw new RuntimeException("Сумма должна быть положительной");
+        }
+        if (fromUserId.equals(toUserId)) {
+            logger.error("Перевод самому себе запрещен: {}", fromUserId);
+            throw new RuntimeException("Перевод самому себе запрещен");
+        }
+        long minorAmount = Money.fromDecimal(amount);
+        // Ключ вставляется в транзакции перевода первым, поэтому параллельный запрос с тем же ключом
+        // ждет на вставке ключа, а не на блокировках счетов. В режиме SHARDED ключ фиксируется вместе
+        // со списанием, в остальных перевод выполняется так же, как без ключа
+        boolean claimed;
+        try {
+            claimed = transferMode == TransferMode.SHARDED
+                    ? shardedTransferEngine.getObject().transfer(fromUserId, toUserId, minorAmount, idempotencyKey, fingerprint)
+                    : transactionRetryExecutor.execute("transfer", () -> {
+                        if (!transferIdempotencyStore.claim(fromUserId, idempotencyKey, fingerprint)) {
+                            return false;
+                        }
+                        transferInMode(fromUserId, toUserId, minorAmount);
+                        return true;
+                    });
+        } catch (TransferPendingException e) {
+            // Результат еще неизвестен; повтор с тем же ключом получит его, когда перевод завершится
+            throw e;
+        } catch (DataAccessException | TransactionException e) {
+            // Конфликты и недоступность базы не записываются: повтор с тем же ключом выполнит перевод
+            throw e;
+        } catch (RuntimeException e) {
+            transferIdempotencyStore.failed(fromUserId, idempotencyKey, fingerprint, e.getMessage());
+            throw e;
+        }
+        if (!claimed) {
+            replay(transferIdempotencyStore.find(fromUserId, idempotencyKey)
+                    .orElseThrow(() -> new RuntimeException("Результат перевода по ключу не найден")), fingerprint, idempotencyKey);
+            return;
+        }
+        transferIdempotencyStore.succeeded(fromUserId, idempotencyKey, fingerprint);
+        logger.info("Перевод успешно выполнен: {} от ID: {} к ID: {}", amount, fromUserId, toUserId);
+    }
+
+    private static void replay(TransferIdempotencyStore.Outcome outcome, String fingerprint, String idempotencyKey) {
+        if (!outcome.fingerprint().equals(fingerprint)) {
+            logger.error("Ключ идемпотентности {} уже использован для другого перевода", idempotencyKey);
+            throw new RuntimeException("Ключ идемпотентности уже использован для другого перевода");
+        }
+        if (outcome.pending()) {
+            logger.info("Перевод по ключу {} еще не завершен", idempotencyKey);
+            throw new TransferPendingException("Перевод принят, но еще не завершен");
+        }
+        logger.info("Повтор перевода по ключу {}, возвращен сохраненный результат", idempotencyKey);
+        if (outcome.error() != null) {
+            throw new RuntimeException(outcome.error());
+        }
+    }
+
+    // Перевод в транзакции вызывающего по transfer.mode (кроме SHARDED)
+    private void transferInMode(Long fromUserId, Long toUserId, long amount) {
+        switch (transferMode) {
+            case OPTIMISTIC -> transferAdaptive(fromUserId, toUserId, amount);
+            case STATEMENT -> transferWithStatement(fromUserId, toUserId, amount);
+            default -> transferWithRowLocks(fromUserId, toUserId, amount);
+        }
+    }
+
+    // Счета читаются без блокировок, при записи Hibernate проверяет версию строк; если счет изменили после
+    // чтения, попытка откатывается и повторяется с задержкой. Счета с частыми конфликтами переводятся с блокировками
+    private void transferAdaptive(Long fromUserId, Long toUserId, long amount) {
+        if (accountContentionTracker.shouldLock(fromUserId, toUserId)) {
+            transferWithRowLocks(fromUserId, toUserId, amount);
+            return;
+        }
+        try {
+            applyTransfer(fromUserId, toUserId, amount, false);
+            accountRepository.flush();
+        } catch (OptimisticLockingFailureException e) {
+            accountContentionTracker.recordConflict(fromUserId, toUserId);
+            throw e;
+        }
+        accountContentionTracker.recordSuccess(fromUserId, toUserId);
+    }
+
+    private void transferWithRowLocks(Long fromUserId, Long toUserId, long amount) {
+        applyTransfer(fromUserId, toUserId, amount, true);
+    }
+
+    // Достаточность средств проверяется в SQL, счета не читаются в Java: блокировки строк держатся только
+    // на время одного UPDATE и фиксации. Причина отказа определяется по пустому результату
+    private void transferWithStatement(Long fromUserId, Long toUserId, long amount) {
+        if (balanceStriping.isStriped(fromUserId)) {
+            // Полосы отправителя сначала переносятся в строку счета под ее блокировкой
+            transferWithRowLocks(fromUserId, toUserId, amount);
+            return;
+        }
+        if (balanceStriping.isStriped(toUserId)) {
+            List<BigDecimal> debited = accountRepository.debitIfSufficient(fromUserId, Money.toDecimal(amount));
+            if (debited.isEmpty()) {
+                throw rejection(fromUserId, List.of(fromUserId));
+            }
+            balanceStriping.credit(toUserId, amount);
+            long fromBalanceAfter = Money.fromDecimal(debited.get(0));
+            transferJournal.append(fromUserId, toUserId, amount,
+                    Money.add(fromBalanceAfter, amount), fromBalanceAfter, null, null);
+            return;
+        }
+        List<AccountBalanceRow> balances = accountRepository.transferInStatement(fromUserId, toUserId, Money.toDecimal(amount));
+        if (balances.isEmpty()) {
+            throw rejection(fromUserId, List.of(fromUserId, toUserId));
+        }
+        long fromBalanceAfter = 0;
+        long toBalanceAfter = 0;
+        for (AccountBalanceRow row : balances) {
+            if (row.getUserId().equals(fromUserId)) {
+                fromBalanceAfter = Money.fromDecimal(row.getBalance());
+            } else {
+                toBalanceAfter = Money.fromDecimal(row.getBalance());
+            }
+        }
+        transferJournal.append(fromUserId, toUserId, amount,
+                Money.add(fromBalanceAfter, amount), fromBalanceAfter,
+                Money.subtract(toBalanceAfter, amount), toBalanceAfter);
+    }
+
+    // Условный UPDATE не изменил строк: не найден счет или у отправителя недостаточно средств
+    private RuntimeException rejection(Long fromUserId, List<Long> userIds) {
+        if (accountRepository.findAllByUserIdIn(userIds).size() < userIds.size()) {
+            logger.error("Счет отправителя или получателя не найден");
+            return new RuntimeException("Счет не найден");
+        }
+        logger.error("Недостаточно средств на счете пользователя ID: {}", fromUserId);
+        return new RuntimeException("Недостаточно средств");
+    }
+
+    private void applyTransfer(Long fromUserId, Long toUserId, long amount, boolean rowLocks) {
+        // С rowLocks оба счета блокируются одним запросом в порядке возрастания id,
+        // поэтому встречные переводы A->B и B->A не образуют взаимоблокировку.
+        // Строка счета получателя с полосами не читается: сумма зачисляется в одну из полос
+        boolean stripedCredit = balanceStriping.isStriped(toUserId);
+        List<Long> userIds = stripedCredit ? List.of(fromUserId) : List.of(fromUserId, toUserId);
+        Account fromAccount = null;
+        Account toAccount = null;
+        for (Account account : rowLocks ? accountRepository.findAllByUserIdInForUpdate(userIds)
+                : accountRepository.findAllByUserIdIn(userIds)) {
+            if (account.getUser().getId().equals(fromUserId)) {
+                fromAccount = account;
+            } else {
+                toAccount = account;
+            }
+        }
         logger.info("Пользователь найден: {}", fromAccount);
-        Account toAccount = accountRepository.findByUserIdForUpdate(toUserId);
-        if (fromAccount == null || toAccount == null) {
+        if (fromAccount == null || toAccount == null && !stripedCredit) {
             logger.error("Счет отправителя или получателя не найден");
             throw new RuntimeException("Счет не найден");
         }
-        if (fromAccount.getBalance().compareTo(amount) < 0) {
+        lazyBalanceAccrual.materialize(fromAccount);
+        balanceStriping.borrow(fromAccount);
+        if (fromAccount.getBalance() < amount) {
             logger.error("Недостаточно средств на счете пользователя ID: {}", fromUserId);
             throw new RuntimeException("Недостаточно средств");
         }
-        if (fromUserId.equals(toUserId)) {
-            logger.error("Перевод самому себе запрещен: {}", fromUserId);
-            throw new RuntimeException("Перевод самому себе запрещен");
-        }
-        fromAccount.setBalance(fromAccount.getBalance().subtract(amount));
-        toAccount.setBalance(toAccount.getBalance().add(amount));
+        long fromBalanceBefore = fromAccount.getBalance();
+        fromAccount.setBalance(Money.subtract(fromBalanceBefore, amount));
         accountRepository.save(fromAccount);
+        if (stripedCredit) {
+            balanceStriping.credit(toUserId, amount);
+            transferJournal.append(fromUserId, toUserId, amount,
+                    fromBalanceBefore, fromAccount.getBalance(), null, null);
+            return;
+        }
+        lazyBalanceAccrual.materialize(toAccount);
+        long toBalanceBefore = toAccount.getBalance();
+        toAccount.setBalance(Money.add(toBalanceBefore, amount));
         accountRepository.save(toAccount);
-        logger.info("Перевод успешно выполнен: {} от ID: {} к ID: {}", amount, fromUserId, toUserId);
+        transferJournal.append(fromUserId, toUserId, amount,
+                fromBalanceBefore, fromAccount.getBalance(), toBalanceBefore, toAccount.getBalance());
     }
 
-    private Long generateId() {
-        return System.currentTimeMillis();
+    @Override
+    public TransferBatchResult transferBatch(Long fromUserId, List<TransferBatchItem> items, TransferBatchMode mode) {
+        logger.info("Пакетный перевод от пользователя ID: {}, переводов: {}, режим: {}",
+                fromUserId, items != null ? items.size() : 0, mode);
+        if (items == null || items.isEmpty() || items.size() > maxBatchItems) {
+            logger.error("Недопустимый размер пакета переводов: {}", items != null ? items.size() : 0);
+            throw new RuntimeException("Пакет должен содержать от 1 до " + maxBatchItems + " переводов");
+        }
+        // Ошибки, не зависящие от балансов, находятся до блокировки счетов
+        String[] rejections = new String[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            rejections[i] = validateBatchItem(fromUserId, items.get(i));
+            if (rejections[i] != null && mode == TransferBatchMode.ATOMIC) {
+                logger.error("Пакетный перевод отклонен, перевод {}: {}", i, rejections[i]);
+                throw new RuntimeException("Перевод " + i + ": " + rejections[i]);
+            }
+        }
+        TransferBatchResult result = transactionRetryExecutor.execute("transfer-batch",
+                () -> applyBatch(fromUserId, items, mode, rejections));
+        logger.info("Пакетный перевод от ID: {} выполнен, применено: {}, отклонено: {}",
+                fromUserId, result.applied(), result.rejected());
+        return result;
+    }
+
+    private static String validateBatchItem(Long fromUserId, TransferBatchItem item) {
+        if (item == null || item.toUserId() == null || item.amount() == null) {
+            return "Не указан получатель или сумма";
+        }
+        if (item.amount().compareTo(BigDecimal.ZERO) <= 0) {
+            return "Сумма должна быть положительной";
+        }
+        if (!Money.fits(item.amount())) {
+            return "Сумма должна быть указана с точностью до копейки";
+        }
+        if (fromUserId.equals(item.toUserId())) {
+            return "Перевод самому себе запрещен";
+        }
+        return null;
+    }
+
+    // Счета отправителя и всех получателей блокируются одним запросом в порядке возрастания id, переводы
+    // применяются к балансам в памяти в порядке элементов. Измененные счета записываются при фиксации
+    // транзакции пакетами JDBC (hibernate.jdbc.batch_size), по одному UPDATE на счет.
+    // Получателям с полосами баланса сумма зачисляется в полосу после обхода пакета, одним зачислением на счет
+    private TransferBatchResult applyBatch(Long fromUserId, List<TransferBatchItem> items, TransferBatchMode mode,
+                                           String[] rejections) {
+        Set<Long> userIds = new LinkedHashSet<>();
+        userIds.add(fromUserId);
+        for (int i = 0; i < items.size(); i++) {
+            if (rejections[i] == null && !balanceStriping.isStriped(items.get(i).toUserId())) {
+                userIds.add(items.get(i).toUserId());
+            }
+        }
+        Map<Long, Account> accounts = new HashMap<>();
+        for (Account account : accountRepository.findAllByUserIdInForUpdate(userIds)) {
+            lazyBalanceAccrual.materialize(account);
+            accounts.put(account.getUser().getId(), account);
+        }
+        Account fromAccount = accounts.get(fromUserId);
+        if (fromAccount == null) {
+            logger.error("Счет отправителя не найден: {}", fromUserId);
+            throw new RuntimeException("Счет не найден");
+        }
+        balanceStriping.borrow(fromAccount);
+        // Упорядочены по ID пользователя, чтобы пакеты с общими получателями брали полосы в одном порядке
+        Map<Long, Long> stripedCredits = new TreeMap<>();
+        List<TransferBatchResult.ItemResult> results = new ArrayList<>(items.size());
+        int applied = 0;
+        for (int i = 0; i < items.size(); i++) {
+            TransferBatchItem item = items.get(i);
+            Long toUserId = item != null ? item.toUserId() : null;
+            String error = rejections[i];
+            boolean stripedCredit = error == null && balanceStriping.isStriped(toUserId);
+            Account toAccount = error == null ? accounts.get(toUserId) : null;
+            long amount = error == null ? Money.fromDecimal(item.amount()) : 0;
+            if (error == null && toAccount == null && !stripedCredit) {
+                error = "Счет не найден";
+            } else if (error == null && fromAccount.getBalance() < amount) {
+                error = "Недостаточно средств";
+            }
+            if (error != null) {
+                if (mode == TransferBatchMode.ATOMIC) {
+                    // Исключение откатывает транзакцию вместе с уже примененными переводами пакета
+                    logger.error("Пакетный перевод отклонен, перевод {}: {}", i, error);
+                    throw new RuntimeException("Перевод " + i + ": " + error);
+                }
+                results.add(new TransferBatchResult.ItemResult(i, toUserId, false, error));
+                continue;
+            }
+            long fromBalanceBefore = fromAccount.getBalance();
+            fromAccount.setBalance(Money.subtract(fromBalanceBefore, amount));
+            if (stripedCredit) {
+                stripedCredits.merge(toUserId, amount, Money::add);
+                transferJournal.append(fromUserId, toUserId, amount,
+                        fromBalanceBefore, fromAccount.getBalance(), null, null);
+            } else {
+                long toBalanceBefore = toAccount.getBalance();
+                toAccount.setBalance(Money.add(toBalanceBefore, amount));
+                transferJournal.append(fromUserId, toUserId, amount,
+                        fromBalanceBefore, fromAccount.getBalance(), toBalanceBefore, toAccount.getBalance());
+            }
+            results.add(new TransferBatchResult.ItemResult(i, toUserId, true, null));
+            applied++;
+        }
+        stripedCredits.forEach(balanceStriping::credit);
+        return new TransferBatchResult(applied, items.size() - applied, results);
     }
 }
\ No newline at end of file
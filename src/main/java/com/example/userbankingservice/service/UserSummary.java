@@ -0,0 +1,9 @@
+package com.example.userbankingservice.service;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+// Пользователь в кеше users: без хеша пароля, счета и ленивых коллекций, поэтому в L2 (Redis) не попадают
+// учетные данные и баланс
+public record UserSummary(Long id, String name, LocalDate dateOfBirth) implements Serializable {
+}
@@ -0,0 +1,16 @@
+package com.example.userbankingservice.service;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+// Пользователь в ответе поиска: только публичные поля, без пароля и ссылок на сущности.
+// Сервис возвращает представление без баланса (balance = null), баланс подставляется при ответе
+public record UserView(Long id,
+                       String name,
+                       LocalDate dateOfBirth,
+                       List<String> emails,
+                       List<String> phones,
+                       BigDecimal balance) implements Serializable {
+}
@@ -0,0 +1,2 @@
+-- Версия строки счета для оптимистичных переводов: каждое изменение счета увеличивает ее на 1
+ALTER TABLE account ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
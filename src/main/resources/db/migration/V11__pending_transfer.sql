@@ -0,0 +1,17 @@
+-- Переводы режима SHARDED между списанием и зачислением. Строка вставляется в транзакции списания и удаляется
+-- в транзакции зачисления (state = CREDIT) или возврата отправителю (state = REFUND); строки, оставшиеся
+-- после остановки процесса или неудачного возврата, завершает восстановление
+CREATE TABLE pending_transfer (
+    id BIGINT PRIMARY KEY,
+    from_user_id BIGINT NOT NULL,
+    to_user_id BIGINT NOT NULL,
+    amount DECIMAL(19, 2) NOT NULL,
+    from_balance_before DECIMAL(19, 2) NOT NULL,
+    from_balance_after DECIMAL(19, 2) NOT NULL,
+    state VARCHAR(10) NOT NULL,
+    error VARCHAR(500),
+    created_at TIMESTAMP NOT NULL
+);
+
+-- Выборка строк для восстановления
+CREATE INDEX idx_pending_transfer_created_at ON pending_transfer (created_at);
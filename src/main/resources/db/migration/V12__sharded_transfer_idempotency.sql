@@ -0,0 +1,4 @@
+-- Ключ перевода SHARDED записывается в транзакции списания с pending = TRUE и завершается
+-- (pending = FALSE, error - причина возврата) в транзакции зачисления или возврата
+ALTER TABLE transfer_idempotency ADD COLUMN pending BOOLEAN NOT NULL DEFAULT FALSE;
+ALTER TABLE pending_transfer ADD COLUMN idempotency_key VARCHAR(100);
@@ -0,0 +1,3 @@
+-- Период начисления, к которому приведен balance (ленивый режим начисления).
+-- NULL означает, что баланс поддерживается периодическим пересчетом.
+ALTER TABLE account ADD COLUMN accrual_tick BIGINT;
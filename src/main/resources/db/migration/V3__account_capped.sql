@@ -0,0 +1,6 @@
+-- Рабочий набор начисления: счета, баланс которых еще может измениться
+ALTER TABLE account ADD COLUMN capped BOOLEAN NOT NULL DEFAULT FALSE;
+
+UPDATE account SET capped = (balance = ROUND(initial_balance * 2.07, 2));
+
+CREATE INDEX idx_account_growing ON account (id) WHERE NOT capped;
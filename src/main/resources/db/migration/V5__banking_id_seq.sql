@@ -0,0 +1,11 @@
+-- Источник блоков идентификаторов для pooled-lo генератора, шаг равен размеру блока
+CREATE SEQUENCE banking_id_seq INCREMENT BY 50;
+
+-- Выдача начинается выше уже существующих идентификаторов, включая выданные по времени
+SELECT setval('banking_id_seq',
+              GREATEST((SELECT max(id) FROM "user"),
+                       (SELECT max(id) FROM account),
+                       (SELECT max(id) FROM email_data),
+                       (SELECT max(id) FROM phone_data),
+                       0) + 1,
+              false);
@@ -0,0 +1,5 @@
+-- Поиск по курсору: порядок выдачи (name, id) и продолжение после последней строки страницы
+CREATE INDEX idx_user_name_id ON "user" (name, id);
+
+-- Фильтр поиска по дате рождения
+CREATE INDEX idx_user_date_of_birth ON "user" (date_of_birth);
@@ -0,0 +1,13 @@
+-- Ключи идемпотентности переводов: параметры и результат первого запроса с ключом отправителя.
+-- Строка успешного перевода пишется в его транзакции, строка отказа - после отката
+CREATE TABLE transfer_idempotency (
+    user_id BIGINT NOT NULL,
+    idempotency_key VARCHAR(100) NOT NULL,
+    fingerprint VARCHAR(200) NOT NULL,
+    error VARCHAR(500),
+    created_at TIMESTAMP NOT NULL DEFAULT now(),
+    PRIMARY KEY (user_id, idempotency_key)
+);
+
+-- Удаление ключей старше transfer.idempotency.ttl
+CREATE INDEX idx_transfer_idempotency_created_at ON transfer_idempotency (created_at);
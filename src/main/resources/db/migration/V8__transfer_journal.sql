@@ -0,0 +1,16 @@
+-- Журнал переводов: только добавление, по строке на выполненный перевод с балансами до и после
+CREATE TABLE transfer_journal (
+    id BIGINT PRIMARY KEY,
+    from_user_id BIGINT NOT NULL,
+    to_user_id BIGINT NOT NULL,
+    amount DECIMAL(19, 2) NOT NULL,
+    from_balance_before DECIMAL(19, 2) NOT NULL,
+    from_balance_after DECIMAL(19, 2) NOT NULL,
+    to_balance_before DECIMAL(19, 2) NOT NULL,
+    to_balance_after DECIMAL(19, 2) NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
+
+-- История переводов пользователя в обе стороны
+CREATE INDEX idx_transfer_journal_from_user ON transfer_journal (from_user_id, created_at);
+CREATE INDEX idx_transfer_journal_to_user ON transfer_journal (to_user_id, created_at);
@@ -0,0 +1,15 @@
+-- Полосы баланса горячих счетов: зачисления распределяются по строкам полос,
+-- баланс счета равен account.balance плюс сумма его полос
+CREATE TABLE account_stripe (
+    account_id BIGINT NOT NULL REFERENCES account (id),
+    stripe INT NOT NULL,
+    balance DECIMAL(19, 2) NOT NULL DEFAULT 0 CHECK (balance >= 0),
+    PRIMARY KEY (account_id, stripe)
+);
+
+-- Число полос счета, 0 - баланс хранится только в строке счета
+ALTER TABLE account ADD COLUMN stripes INT NOT NULL DEFAULT 0;
+
+-- Зачисление на счет с полосами не блокирует строку счета, поэтому баланс получателя в журнале не известен
+ALTER TABLE transfer_journal ALTER COLUMN to_balance_before DROP NOT NULL;
+ALTER TABLE transfer_journal ALTER COLUMN to_balance_after DROP NOT NULL;
@@ -0,0 +1,120 @@
+package com.example.userbankingservice.benchmark;
+
+import com.example.userbankingservice.service.AccrualPolicy;
+import com.example.userbankingservice.service.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Арифметика балансов на BigDecimal (как было в BalanceUpdateSchedulerImpl и переводах) против копеек в long (Money).
+// Начисление: один период для ACCOUNTS счетов. Перевод: проверка средств, списание и зачисление туда и обратно.
+// Запуск после mvn test-compile:
+//   java -cp target/test-classes:target/classes:<зависимости> org.openjdk.jmh.Main MoneyBenchmark -prof gc
+// gc.alloc.rate.norm - байт, выделенных на операцию; для long-вариантов он должен быть около нуля
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+    private static final int ACCOUNTS = 1024;
+
+    private BigDecimal[] decimalBalances;
+    private BigDecimal[] decimalInitialBalances;
+    private long[] balances;
+    private long[] initialBalances;
+    private BigDecimal decimalFrom;
+    private BigDecimal decimalTo;
+    private BigDecimal decimalAmount;
+    private long from;
+    private long to;
+    private long amount;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        decimalBalances = new BigDecimal[ACCOUNTS];
+        decimalInitialBalances = new BigDecimal[ACCOUNTS];
+        balances = new long[ACCOUNTS];
+        initialBalances = new long[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            initialBalances[i] = 100_00L + random.nextInt(1_000_000_00);
+            balances[i] = initialBalances[i] + random.nextInt(1_000_00);
+            decimalBalances[i] = Money.toDecimal(balances[i]);
+            decimalInitialBalances[i] = Money.toDecimal(initialBalances[i]);
+        }
+        decimalFrom = new BigDecimal("1000.00");
+        decimalTo = new BigDecimal("500.00");
+        decimalAmount = new BigDecimal("12.34");
+        from = 1000_00L;
+        to = 500_00L;
+        amount = 12_34L;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCOUNTS)
+    public void accrualBigDecimal(Blackhole blackhole) {
+        for (int i = 0; i < ACCOUNTS; i++) {
+            BigDecimal maxBalance = decimalInitialBalances[i].multiply(new BigDecimal("2.07"));
+            BigDecimal newBalance = decimalBalances[i].multiply(new BigDecimal("1.10"));
+            if (newBalance.compareTo(maxBalance) > 0) {
+                newBalance = maxBalance;
+            }
+            // Округление до копеек, которое раньше выполнялось при записи в DECIMAL(19,2)
+            blackhole.consume(newBalance.setScale(2, RoundingMode.HALF_UP));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCOUNTS)
+    public void accrualLong(Blackhole blackhole) {
+        for (int i = 0; i < ACCOUNTS; i++) {
+            blackhole.consume(AccrualPolicy.accrueOnce(balances[i], AccrualPolicy.maxBalance(initialBalances[i])));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public void transferBigDecimal(Blackhole blackhole) {
+        if (decimalFrom.compareTo(decimalAmount) >= 0) {
+            decimalFrom = decimalFrom.subtract(decimalAmount);
+            decimalTo = decimalTo.add(decimalAmount);
+        }
+        if (decimalTo.compareTo(decimalAmount) >= 0) {
+            decimalTo = decimalTo.subtract(decimalAmount);
+            decimalFrom = decimalFrom.add(decimalAmount);
+        }
+        blackhole.consume(decimalFrom);
+        blackhole.consume(decimalTo);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public void transferLong(Blackhole blackhole) {
+        if (from >= amount) {
+            from = Money.subtract(from, amount);
+            to = Money.add(to, amount);
+        }
+        if (to >= amount) {
+            to = Money.subtract(to, amount);
+            from = Money.add(from, amount);
+        }
+        blackhole.consume(from);
+        blackhole.consume(to);
+    }
+}
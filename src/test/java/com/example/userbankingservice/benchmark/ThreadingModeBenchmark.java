@@ -0,0 +1,107 @@
+package com.example.userbankingservice.benchmark;
+
+import com.example.userbankingservice.util.JwtUtil;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Нагрузка на запущенный сервис для сравнения режимов обработки запросов: закрытый цикл из N клиентов,
+// каждый повторяет поиск с новым префиксом имени (промах кешей, запрос в базу) и получение пользователя.
+// Запуск: сервис в обычном режиме и с --spring.profiles.active=virtual (JDK 21+), затем для каждого
+//   java -cp target/test-classes:target/classes:<зависимости> ...benchmark.ThreadingModeBenchmark \
+//        [url=http://localhost:8080] [clients=400] [seconds=30] [userId=1]
+// Сравниваются запросы в секунду, p50/p99 и число ответов не 200 (в том числе 503 при исчерпании пула Hikari)
+public class ThreadingModeBenchmark {
+    private static final String DEFAULT_SECRET = "myVerySecretJwtKey2025WithRandomCharacters123456789";
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : "http://localhost:8080";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 400;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        long userId = args.length > 3 ? Long.parseLong(args[3]) : 1L;
+        String token = "Bearer " + new JwtUtil(System.getProperty("jwt.secret", DEFAULT_SECRET)).generateToken(userId);
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        // Прогрев: JIT, пул соединений, кеш проверенных токенов
+        runClosedLoop(client, url, token, userId, Math.min(clients, 20), 5);
+        Result result = runClosedLoop(client, url, token, userId, clients, seconds);
+        System.out.printf("url=%s clients=%d seconds=%d requests=%d rps=%.1f p50=%.1fms p99=%.1fms errors=%d%n",
+                url, clients, seconds, result.latenciesNanos().length, result.latenciesNanos().length / (double) seconds,
+                percentile(result.latenciesNanos(), 0.50) / 1e6, percentile(result.latenciesNanos(), 0.99) / 1e6,
+                result.errors());
+    }
+
+    private static Result runClosedLoop(HttpClient client, String url, String token, long userId,
+                                        int clients, int seconds) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        AtomicLong errors = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        List<Future<long[]>> workers = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            workers.add(executor.submit(() -> {
+                long[] latencies = new long[1024];
+                int count = 0;
+                while (System.nanoTime() < deadline) {
+                    long startedAt = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(nextRequest(url, token, userId),
+                                HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = System.nanoTime() - startedAt;
+                }
+                return Arrays.copyOf(latencies, count);
+            }));
+        }
+        List<long[]> parts = new ArrayList<>();
+        for (Future<long[]> worker : workers) {
+            parts.add(worker.get());
+        }
+        executor.shutdown();
+        long[] all = parts.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Result(all, errors.get());
+    }
+
+    private static HttpRequest nextRequest(String url, String token, long userId) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String path = random.nextInt(4) == 0
+                ? "/api/users/" + userId
+                : "/api/users/search?size=10&name=" + (char) ('A' + random.nextInt(26)) + random.nextInt(1_000_000);
+        return HttpRequest.newBuilder(URI.create(url + path))
+                .header("Authorization", token)
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)];
+    }
+
+    private record Result(long[] latenciesNanos, long errors) {
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.userbankingservice.cache;
+
+import com.example.userbankingservice.service.UserView;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EncodedResponseCacheTest {
+    private final Map<Long, BigDecimal> balances = new HashMap<>();
+    private final AtomicInteger loads = new AtomicInteger();
+    private EncodedResponseCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new EncodedResponseCache(new ConcurrentMapCache("searchResponses"), new ObjectMapper(),
+                userIds -> {
+                    Map<Long, BigDecimal> result = new HashMap<>(balances);
+                    result.keySet().retainAll(userIds);
+                    return result;
+                });
+    }
+
+    @Test
+    void get_FillsCurrentBalancesIntoCachedBody() {
+        balances.put(1L, new BigDecimal("100.00"));
+        balances.put(2L, new BigDecimal("5.10"));
+
+        EncodedResponse first = get();
+        assertEquals("[" + view(1L, "Anna", "100.00") + "," + view(2L, "Boris", "5.10") + "]", text(first));
+
+        balances.put(1L, new BigDecimal("102.07"));
+        EncodedResponse second = get();
+        assertEquals("[" + view(1L, "Anna", "102.07") + "," + view(2L, "Boris", "5.10") + "]", text(second));
+        assertNotEquals(first.etag(), second.etag());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_UserWithoutAccountKeepsNullBalance() {
+        EncodedResponse response = get();
+
+        assertEquals("[" + view(1L, "Anna", "null") + "," + view(2L, "Boris", "null") + "]", text(response));
+    }
+
+    @Test
+    void get_BalanceTextInsideStringIsNotSlot() {
+        balances.put(1L, new BigDecimal("1.00"));
+        String name = "\"balance\":null";
+
+        EncodedResponse response = cache.get(1L,
+                () -> new UserView(1L, name, null, List.of(), List.of(), null), view -> List.of(view.id()));
+
+        assertTrue(text(response).contains("\"name\":\"\\\"balance\\\":null\""));
+        assertTrue(text(response).endsWith("\"balance\":1.00}"));
+    }
+
+    @Test
+    void get_SameBalancesGiveSameEtag() {
+        balances.put(1L, new BigDecimal("100.00"));
+
+        assertEquals(get().etag(), get().etag());
+    }
+
+    private EncodedResponse get() {
+        return cache.get("page", () -> {
+            loads.incrementAndGet();
+            return List.of(new UserView(1L, "Anna", null, List.of("anna@example.com"), List.of(), null),
+                    new UserView(2L, "Boris", null, List.of(), List.of("79201234567"), null));
+        }, views -> views.stream().map(UserView::id).toList());
+    }
+
+    private static String view(Long id, String name, String balance) {
+        String contacts = id == 1L ? "\"emails\":[\"anna@example.com\"],\"phones\":[]"
+                : "\"emails\":[],\"phones\":[\"79201234567\"]";
+        return "{\"id\":" + id + ",\"name\":\"" + name + "\",\"dateOfBirth\":null," + contacts + ",\"balance\":" + balance + "}";
+    }
+
+    private static String text(EncodedResponse response) {
+        return new String(response.body(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.userbankingservice.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TwoLevelCacheTest {
+    private final List<CacheInvalidation> published = new ArrayList<>();
+    private final CacheInvalidationBus bus = new CacheInvalidationBus() {
+        @Override
+        public void publish(CacheInvalidation invalidation) {
+            published.add(invalidation);
+        }
+
+        @Override
+        public void subscribe(Consumer<CacheInvalidation> listener) {
+        }
+    };
+    private SimpleMeterRegistry meterRegistry;
+    private ConcurrentMapCache l2;
+    private TwoLevelCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        l2 = new ConcurrentMapCache("users");
+        cache = new TwoLevelCache("users", Caffeine.newBuilder().maximumSize(100).build(), l2, bus, "node-a", meterRegistry);
+    }
+
+    @Test
+    void get_L2HitIsPromotedToL1() {
+        l2.put(1L, "user");
+        assertEquals("user", cache.get(1L).get());
+        l2.evict(1L);
+        assertEquals("user", cache.get(1L).get());
+        assertEquals(1.0, count("l1", "hit"));
+        assertEquals(1.0, count("l2", "hit"));
+    }
+
+    @Test
+    void get_LoaderResultStoredInBothLevels() {
+        assertEquals("loaded", cache.get(1L, () -> "loaded"));
+        assertEquals("loaded", l2.get(1L).get());
+        assertEquals("loaded", cache.get(1L, () -> "other"));
+        assertEquals(1.0, count("l2", "miss"));
+    }
+
+    @Test
+    void evict_RemovesBothLevelsAndPublishes() {
+        cache.put(1L, "user");
+        cache.evict(1L);
+        assertNull(cache.get(1L));
+        assertNull(l2.get(1L));
+        assertEquals(List.of(new CacheInvalidation("node-a", "users", 1L)), published);
+    }
+
+    @Test
+    void evictLocal_KeepsL2() {
+        cache.put(1L, "user");
+        cache.evictLocal(1L);
+        assertEquals("user", cache.get(1L).get());
+        assertEquals(1.0, count("l2", "hit"));
+    }
+
+    @Test
+    void get_L2FailureTreatedAsMiss() {
+        Cache failingL2 = mock(Cache.class);
+        when(failingL2.get(any())).thenThrow(new IllegalStateException("redis down"));
+        doThrow(new IllegalStateException("redis down")).when(failingL2).put(any(), any());
+        TwoLevelCache degraded = new TwoLevelCache("users", Caffeine.newBuilder().build(), failingL2, bus, "node-a", meterRegistry);
+        assertEquals("loaded", degraded.get(1L, () -> "loaded"));
+        assertEquals("loaded", degraded.get(1L).get());
+        assertEquals(2.0, meterRegistry.counter("cache.level.errors", "cache", "users", "level", "l2").count());
+    }
+
+    @Test
+    void get_ConcurrentCallersShareOneLoad() throws Exception {
+        CountDownLatch loaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        Callable<String> loader = () -> {
+            loads.incrementAndGet();
+            loaderStarted.countDown();
+            release.await();
+            return "loaded";
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> cache.get(1L, loader));
+            loaderStarted.await();
+            Future<String> second = executor.submit(() -> cache.get(1L, loader));
+            release.countDown();
+            assertEquals("loaded", first.get(5, TimeUnit.SECONDS));
+            assertEquals("loaded", second.get(5, TimeUnit.SECONDS));
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private double count(String level, String result) {
+        return meterRegistry.counter("cache.level.gets", "cache", "users", "level", level, "result", result).count();
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.userbankingservice.cache;
+
+import com.example.userbankingservice.service.CursorSlice;
+import com.example.userbankingservice.service.UserSummary;
+import com.example.userbankingservice.service.UserView;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class UserCacheIndexTest {
+    private final List<CacheInvalidation> published = new ArrayList<>();
+    private final List<Consumer<CacheInvalidation>> listeners = new ArrayList<>();
+    private final CacheInvalidationBus bus = new CacheInvalidationBus() {
+        @Override
+        public void publish(CacheInvalidation invalidation) {
+            published.add(invalidation);
+        }
+
+        @Override
+        public void subscribe(Consumer<CacheInvalidation> listener) {
+            listeners.add(listener);
+        }
+    };
+    private UserCacheIndex index;
+    private TwoLevelCache cache;
+    private UserSummary user;
+
+    @BeforeEach
+    void setUp() {
+        index = new UserCacheIndex(bus, "node-a", Duration.ofMinutes(10));
+        cache = new TwoLevelCache("users", Caffeine.newBuilder().build(), new ConcurrentMapCache("users"),
+                bus, "node-a", new SimpleMeterRegistry(), index::register);
+        index.bind(cache);
+        user = new UserSummary(1L, "John Doe", null);
+    }
+
+    @Test
+    void evictUser_RemovesAllKeysOfUser() {
+        cache.put(1L, user);
+        cache.put("john@example.com", user);
+        cache.put("79201234567", user);
+        cache.put("other@example.com", null);
+
+        index.evictUser(1L);
+
+        assertNull(cache.get(1L));
+        assertNull(cache.get("john@example.com"));
+        assertNull(cache.get("79201234567"));
+        assertNotNull(cache.get("other@example.com"));
+    }
+
+    @Test
+    void evictUser_EvictsChangedContactKeys() {
+        cache.put("new@example.com", null);
+
+        index.evictUser(1L, "new@example.com");
+
+        assertNull(cache.get("new@example.com"));
+        assertEquals(1, published.size());
+        assertEquals(UserCacheIndex.USER_INVALIDATION, published.get(0).cacheName());
+    }
+
+    @Test
+    void evictUser_EvictsOnlySearchesWithUserOrChangedContact() {
+        TwoLevelCache search = new TwoLevelCache("userSearch", Caffeine.newBuilder().build(), new ConcurrentMapCache("userSearch"),
+                bus, "node-a", new SimpleMeterRegistry(), index::registerSearch, index::registerSharedSearch);
+        index.bindSearch(search);
+        SearchKey withUser = SearchKey.page("Jo", null, null, null, 0, 10);
+        SearchKey withOther = SearchKey.page("Ma", null, null, null, 0, 10);
+        SearchKey byNewEmail = SearchKey.page(null, "new@example.com", null, null, 0, 10);
+        SearchKey byOtherEmail = SearchKey.cursor(null, "other@example.com", null, null, null, 10);
+        search.put(withUser, page(1L, 3L));
+        search.put(withOther, page(2L));
+        search.put(byNewEmail, page());
+        search.put(byOtherEmail, new CursorSlice<>(List.of(view(2L)), null, false));
+
+        index.evictUser(1L, "new@example.com");
+
+        assertNull(search.get(withUser));
+        assertNull(search.get(byNewEmail));
+        assertNotNull(search.get(withOther));
+        assertNotNull(search.get(byOtherEmail));
+    }
+
+    @Test
+    void evictUser_EvictsSearchResponsesByOwners() {
+        TwoLevelCache responses = new TwoLevelCache("searchResponses", Caffeine.newBuilder().build(),
+                new ConcurrentMapCache("searchResponses"), bus, "node-a", new SimpleMeterRegistry(),
+                index::registerSearch, index::registerSharedSearch);
+        index.bindSearch(responses);
+        SearchKey key = SearchKey.page("Jo", null, null, null, 0, 10);
+        responses.put(key, new EncodedTemplate(new byte[0], new int[0], List.of(1L)));
+
+        index.evictUser(2L);
+        assertNotNull(responses.get(key));
+
+        index.evictUser(1L);
+        assertNull(responses.get(key));
+    }
+
+    @Test
+    void evictUser_RemovesSharedL2KeysWrittenByOtherNode() {
+        // Общий L2 и индекс его ключей, как Redis; узел B закешировал пользователя до запуска узла A
+        ConcurrentMapCache l2 = new ConcurrentMapCache("users");
+        Map<String, Set<Object>> sharedKeys = new HashMap<>();
+        UserKeyIndex keyIndex = new UserKeyIndex() {
+            @Override
+            public void add(Collection<String> dependencies, Object key) {
+                dependencies.forEach(dependency -> sharedKeys.computeIfAbsent(dependency, ignored -> new HashSet<>()).add(key));
+            }
+
+            @Override
+            public Collection<Object> remove(String dependency) {
+                Set<Object> keys = sharedKeys.remove(dependency);
+                return keys != null ? keys : List.of();
+            }
+        };
+        UserCacheIndex indexB = new UserCacheIndex(CacheInvalidationBus.LOCAL, "node-b", Duration.ofMinutes(10), keyIndex);
+        TwoLevelCache cacheB = new TwoLevelCache("users", Caffeine.newBuilder().build(), l2, CacheInvalidationBus.LOCAL,
+                "node-b", new SimpleMeterRegistry(), indexB::register, indexB::registerShared);
+        cacheB.put("john@example.com", user);
+        UserCacheIndex indexA = new UserCacheIndex(bus, "node-a", Duration.ofMinutes(10), keyIndex);
+        TwoLevelCache cacheA = new TwoLevelCache("users", Caffeine.newBuilder().build(), l2, bus,
+                "node-a", new SimpleMeterRegistry(), indexA::register, indexA::registerShared);
+        indexA.bind(cacheA);
+
+        indexA.evictUser(1L);
+
+        assertNull(l2.get("john@example.com"));
+        assertNull(cacheA.get("john@example.com"));
+    }
+
+    @Test
+    void remoteInvalidation_EvictsLocallyIndexedKeysFromL1Only() {
+        ConcurrentMapCache l2 = new ConcurrentMapCache("users");
+        TwoLevelCache shared = new TwoLevelCache("users", Caffeine.newBuilder().build(), l2, bus, "node-a",
+                new SimpleMeterRegistry(), index::register);
+        index.bind(shared);
+        shared.put("john@example.com", user);
+        CacheInvalidation remote = new CacheInvalidation("node-b", UserCacheIndex.USER_INVALIDATION,
+                new UserCacheIndex.UserInvalidation(1L, List.of()));
+
+        listeners.forEach(listener -> listener.accept(remote));
+
+        // L2 уже изменен узлом-отправителем, получатель сбрасывает только свою копию в L1
+        assertNotNull(l2.get("john@example.com"));
+        l2.evict("john@example.com");
+        assertNull(shared.get("john@example.com"));
+        assertEquals(0, published.size());
+    }
+
+    private static Page<UserView> page(Long... userIds) {
+        return new PageImpl<>(Arrays.stream(userIds).map(UserCacheIndexTest::view).toList());
+    }
+
+    private static UserView view(Long userId) {
+        return new UserView(userId, "User " + userId, null, List.of(), List.of(), null);
+    }
+}
@@ -2,6 +2,7 @@ package com.example.userbankingservice.controller;
 
 import com.example.userbankingservice.entity.User;
 import com.example.userbankingservice.service.UserService;
+import com.example.userbankingservice.service.UserView;
 import com.example.userbankingservice.util.JwtUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,8 +16,14 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -72,6 +79,58 @@ class UserControllerIntegrationTest {
         verify(userService).searchUsers("John", null, null, null, 0, 10);
     }
 
+    @Test
+    @WithMockUser(username = "1", authorities = {"USER"})
+    void searchUsersByCursor_Success() {
+        String token = "Bearer " + jwtUtil.generateToken(1L);
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", token);
+
+        UriComponentsBuilder builder = UriComponentsBuilder.fromPath("/api/users/search/cursor")
+                .queryParam("name", "John")
+                .queryParam("size", "10");
+
+        ResponseEntity<String> response = restTemplate.exchange(
+                builder.toUriString(), HttpMethod.GET, new HttpEntity<>(headers), String.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(userService).searchUsersByCursor("John", null, null, null, null, 10);
+    }
+
+    @Test
+    @WithMockUser(username = "1", authorities = {"USER"})
+    void getUser_NotModified() {
+        String token = "Bearer " + jwtUtil.generateToken(1L);
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", token);
+        when(userService.getUserView(1L)).thenReturn(
+                new UserView(1L, "John", null, List.of("john@example.com"), List.of(), null));
+        when(userService.balances(List.of(1L))).thenReturn(Map.of(1L, new BigDecimal("100.00")));
+
+        ResponseEntity<String> response = restTemplate.exchange(
+                "/api/users/1", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertTrue(response.getBody().contains("\"balance\":100.00"));
+        String etag = response.getHeaders().getETag();
+        assertNotNull(etag);
+
+        // Повторный запрос с ETag обслуживается из кеша ответов и возвращает 304 без тела
+        headers.setIfNoneMatch(etag);
+        ResponseEntity<String> notModified = restTemplate.exchange(
+                "/api/users/1", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+        assertNull(notModified.getBody());
+
+        // Баланс в кеш не попадает: после начисления закешированный ответ отдается с новым балансом и ETag
+        when(userService.balances(List.of(1L))).thenReturn(Map.of(1L, new BigDecimal("102.50")));
+        ResponseEntity<String> accrued = restTemplate.exchange(
+                "/api/users/1", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertEquals(HttpStatus.OK, accrued.getStatusCode());
+        assertTrue(accrued.getBody().contains("\"balance\":102.50"));
+        assertNotEquals(etag, accrued.getHeaders().getETag());
+        verify(userService, times(1)).getUserView(1L);
+    }
+
     @Test
     @WithMockUser(username = "1", authorities = {"USER"})
     void updateEmail_Success() {
@@ -189,12 +248,12 @@ class UserControllerIntegrationTest {
         request.setAmount(BigDecimal.valueOf(100.00));
         HttpEntity<UserController.TransferRequest> entity = new HttpEntity<>(request, headers);
 
-        doNothing().when(userService).transferMoney(1L, 2L, BigDecimal.valueOf(100.00));
+        doNothing().when(userService).transferMoney(1L, 2L, BigDecimal.valueOf(100.00), null);
         ResponseEntity<Void> response = restTemplate.postForEntity(
                 "/api/users/transfers", entity, Void.class);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        verify(userService).transferMoney(1L, 2L, BigDecimal.valueOf(100.00));
+        verify(userService).transferMoney(1L, 2L, BigDecimal.valueOf(100.00), null);
     }
 
     @Test
@@ -209,12 +268,12 @@ class UserControllerIntegrationTest {
         request.setAmount(BigDecimal.valueOf(2000.00));
         HttpEntity<UserController.TransferRequest> entity = new HttpEntity<>(request, headers);
 
-        doThrow(new RuntimeException("Недостаточно средств")).when(userService).transferMoney(1L, 2L, BigDecimal.valueOf(2000.00));
+        doThrow(new RuntimeException("Недостаточно средств")).when(userService).transferMoney(1L, 2L, BigDecimal.valueOf(2000.00), null);
         ResponseEntity<String> response = restTemplate.postForEntity(
                 "/api/users/transfers", entity, String.class);
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
-        verify(userService).transferMoney(1L, 2L, BigDecimal.valueOf(2000.00));
+        verify(userService).transferMoney(1L, 2L, BigDecimal.valueOf(2000.00), null);
     }
 
     @Test
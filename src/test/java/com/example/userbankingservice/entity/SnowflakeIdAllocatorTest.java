@@ -0,0 +1,69 @@
+package com.example.userbankingservice.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnowflakeIdAllocatorTest {
+
+    @Test
+    void next_EncodesTimeNodeAndSequence() {
+        SnowflakeIdAllocator allocator = new SnowflakeIdAllocator(5, () -> SnowflakeIdAllocator.EPOCH + 1000);
+        long id = allocator.next();
+        assertEquals(1000L, id >>> 22);
+        assertEquals(5L, (id >>> 12) & 1023);
+        assertEquals(0L, id & 4095);
+        assertEquals(1L, allocator.next() & 4095);
+    }
+
+    @Test
+    void next_SequenceOverflowMovesToNextMillisecond() {
+        SnowflakeIdAllocator allocator = new SnowflakeIdAllocator(1, () -> SnowflakeIdAllocator.EPOCH + 1000);
+        long last = 0;
+        for (int i = 0; i < 4097; i++) {
+            long id = allocator.next();
+            assertTrue(id > last);
+            last = id;
+        }
+        assertEquals(1001L, last >>> 22);
+    }
+
+    @Test
+    void next_ClockMovedBackwardsStaysMonotonic() {
+        long[] now = {SnowflakeIdAllocator.EPOCH + 5000};
+        SnowflakeIdAllocator allocator = new SnowflakeIdAllocator(1, () -> now[0]);
+        long first = allocator.next();
+        now[0] -= 2000;
+        assertTrue(allocator.next() > first);
+    }
+
+    @Test
+    void next_UniqueAcrossThreads() throws InterruptedException {
+        SnowflakeIdAllocator allocator = new SnowflakeIdAllocator(7);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    ids.add(allocator.next());
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(160_000, ids.size());
+    }
+
+    @Test
+    void constructor_RejectsNodeIdOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdAllocator(1024));
+    }
+}
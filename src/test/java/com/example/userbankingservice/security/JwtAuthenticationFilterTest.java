@@ -0,0 +1,138 @@
+package com.example.userbankingservice.security;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class JwtAuthenticationFilterTest {
+    private static final String SECRET = "myVerySecretJwtKey2025WithRandomCharacters123456789";
+
+    private final AtomicLong nanos = new AtomicLong();
+    private SimpleMeterRegistry meterRegistry;
+    private JwtAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = filter(Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void repeatedTokenIsVerifiedOnce() throws Exception {
+        String token = token(1L, Duration.ofMinutes(10));
+
+        assertEquals(1L, authenticate(token));
+        assertEquals(1L, authenticate(token));
+
+        assertEquals(1, verifications());
+    }
+
+    @Test
+    void cachedTokenExpiresAtTokenExp() throws Exception {
+        String token = token(1L, Duration.ofMinutes(10));
+        authenticate(token);
+
+        advance(Duration.ofMinutes(9));
+        authenticate(token);
+        assertEquals(1, verifications());
+
+        advance(Duration.ofMinutes(2));
+        authenticate(token);
+        assertEquals(2, verifications());
+    }
+
+    @Test
+    void cachedTokenLivesNoLongerThanMaxTtl() throws Exception {
+        filter = filter(Duration.ofMinutes(5));
+        String token = token(1L, Duration.ofHours(1));
+        authenticate(token);
+
+        advance(Duration.ofMinutes(4));
+        authenticate(token);
+        assertEquals(1, verifications());
+
+        advance(Duration.ofMinutes(2));
+        authenticate(token);
+        assertEquals(2, verifications());
+    }
+
+    @Test
+    void tamperedTokenIsRejectedWhileOriginalIsCached() throws Exception {
+        String token = token(1L, Duration.ofMinutes(10));
+        assertEquals(1L, authenticate(token));
+
+        // Подпись от исходного токена, а в теле другой пользователь
+        String[] parts = token.split("\\.");
+        String payload = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                ("{\"userId\":2,\"exp\":" + (System.currentTimeMillis() / 1000 + 600) + "}").getBytes(StandardCharsets.UTF_8));
+        String tampered = parts[0] + "." + payload + "." + parts[2];
+
+        assertNull(authenticate(tampered));
+        assertNull(authenticate(tampered));
+        assertEquals(1L, authenticate(token));
+        assertEquals(3, verifications());
+    }
+
+    @Test
+    void expiredTokenIsNotCached() throws Exception {
+        String token = token(1L, Duration.ofMinutes(-1));
+
+        assertNull(authenticate(token));
+        assertNull(authenticate(token));
+
+        assertEquals(2, verifications());
+    }
+
+    private JwtAuthenticationFilter filter(Duration maxTtl) {
+        return new JwtAuthenticationFilter(SECRET, 100, maxTtl, mock(UserDetailsService.class), meterRegistry, nanos::get);
+    }
+
+    private Object authenticate(String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users/1");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? authentication.getPrincipal() : null;
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+
+    private long verifications() {
+        return meterRegistry.timer("jwt.verification").count();
+    }
+
+    private static String token(Long userId, Duration expiresIn) {
+        return Jwts.builder()
+                .claim("userId", userId)
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + expiresIn.toMillis()))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.userbankingservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountContentionTrackerTest {
+
+    @Test
+    void shouldLock_AfterRepeatedConflicts() {
+        AccountContentionTracker tracker = new AccountContentionTracker(new SimpleMeterRegistry(), 0.3, 60000, 100);
+
+        for (int i = 0; i < 3; i++) {
+            tracker.recordConflict(1L, 2L);
+        }
+        assertFalse(tracker.shouldLock(1L, 3L));
+
+        tracker.recordConflict(1L, 2L);
+        assertTrue(tracker.shouldLock(1L, 3L));
+        assertTrue(tracker.shouldLock(3L, 2L));
+        assertFalse(tracker.shouldLock(3L, 4L));
+    }
+
+    @Test
+    void shouldLock_SuccessesKeepRateBelowThreshold() {
+        AccountContentionTracker tracker = new AccountContentionTracker(new SimpleMeterRegistry(), 0.3, 60000, 100);
+
+        for (int i = 0; i < 20; i++) {
+            tracker.recordConflict(1L, 2L);
+            tracker.recordSuccess(1L, 2L);
+            tracker.recordSuccess(1L, 2L);
+            tracker.recordSuccess(1L, 2L);
+        }
+
+        assertFalse(tracker.shouldLock(1L, 2L));
+    }
+
+    @Test
+    void shouldLock_ReturnsToOptimisticAfterPeriod() throws InterruptedException {
+        AccountContentionTracker tracker = new AccountContentionTracker(new SimpleMeterRegistry(), 0.3, 50, 100);
+        for (int i = 0; i < 4; i++) {
+            tracker.recordConflict(1L, 2L);
+        }
+        assertTrue(tracker.shouldLock(1L, 2L));
+
+        Thread.sleep(80);
+        assertFalse(tracker.shouldLock(1L, 2L));
+
+        // В пробном периоде счет возвращается на блокировки после двух конфликтов
+        tracker.recordConflict(1L, 2L);
+        tracker.recordConflict(1L, 2L);
+        assertTrue(tracker.shouldLock(1L, 2L));
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.userbankingservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccrualPolicyTest {
+
+    @Test
+    void accrue_OneTick() {
+        long result = AccrualPolicy.accrue(1000_00L, 1000_00L, 1);
+        assertEquals(1100_00L, result);
+    }
+
+    @Test
+    void accrue_RoundsEveryTick() {
+        // 10.05 -> 11.055 -> 11.06 -> 12.166 -> 12.17
+        long result = AccrualPolicy.accrue(10_05L, 100_00L, 2);
+        assertEquals(12_17L, result);
+    }
+
+    @Test
+    void accrue_CappedAtMaxBalance() {
+        long result = AccrualPolicy.accrue(1000_00L, 1000_00L, 100);
+        assertEquals(2070_00L, result);
+    }
+
+    @Test
+    void accrue_AboveMaxReducedToMax() {
+        // Периодический пересчет тоже приводит баланс выше максимума к максимуму
+        long result = AccrualPolicy.accrue(5000_00L, 1000_00L, 1);
+        assertEquals(2070_00L, result);
+    }
+
+    @Test
+    void accrue_ZeroTicks() {
+        long result = AccrualPolicy.accrue(1000_00L, 1000_00L, 0);
+        assertEquals(1000_00L, result);
+    }
+
+    @Test
+    void accrue_FixedPointStopsEarly() {
+        long result = AccrualPolicy.accrue(4L, 1000_00L, Long.MAX_VALUE);
+        assertEquals(4L, result);
+    }
+
+    @Test
+    void isCapped_MaxRoundedToKopecks() {
+        // 0.05 * 2.07 = 0.1035 -> 0.10
+        assertTrue(AccrualPolicy.isCapped(10L, 5L));
+        assertFalse(AccrualPolicy.isCapped(11L, 5L));
+    }
+
+    @Test
+    void tickAt_ThirtySecondPeriods() {
+        assertEquals(0, AccrualPolicy.tickAt(29_999));
+        assertEquals(1, AccrualPolicy.tickAt(30_000));
+    }
+}
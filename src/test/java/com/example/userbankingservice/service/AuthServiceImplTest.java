@@ -0,0 +1,73 @@
+package com.example.userbankingservice.service;
+
+import com.example.userbankingservice.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class AuthServiceImplTest {
+    private static final String SECRET = "myVerySecretJwtKey2025WithRandomCharacters123456789";
+
+    private UserService userService;
+    private UserRepository userRepository;
+    private AuthServiceImpl authService;
+
+    @BeforeEach
+    void setUp() {
+        userService = mock(UserService.class);
+        userRepository = mock(UserRepository.class);
+        authService = new AuthServiceImpl(userService, userRepository, new BCryptPasswordEncoder(4),
+                new SimpleMeterRegistry(), 4, 1, 10, 2000, SECRET, 60000);
+        when(userService.findByEmail("john@example.com")).thenReturn(Optional.of(new UserSummary(1L, "John", null)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        authService.shutdown();
+    }
+
+    @Test
+    void login_Success() {
+        storePassword(new BCryptPasswordEncoder(4).encode("password"));
+        String token = authService.login("john@example.com", null, "password").join();
+        assertFalse(token.isEmpty());
+        verify(userRepository, never()).updatePassword(anyLong(), anyString());
+    }
+
+    @Test
+    void login_WrongPassword() {
+        storePassword(new BCryptPasswordEncoder(4).encode("password"));
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> authService.login("john@example.com", null, "wrong").join());
+        assertEquals("Неверные учетные данные", e.getCause().getMessage());
+    }
+
+    @Test
+    void login_RehashesWhenCostChanged() {
+        storePassword(new BCryptPasswordEncoder(5).encode("password"));
+        authService.login("john@example.com", null, "password").join();
+        verify(userRepository).updatePassword(eq(1L), argThat(hash -> AuthServiceImpl.costOf(hash) == 4));
+    }
+
+    @Test
+    void login_UnknownPasswordHash() {
+        when(userRepository.findPasswordById(1L)).thenReturn(Optional.empty());
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> authService.login("john@example.com", null, "password").join());
+        assertEquals("Неверные учетные данные", e.getCause().getMessage());
+    }
+
+    private void storePassword(String hash) {
+        when(userRepository.findPasswordById(1L)).thenReturn(Optional.of(hash));
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.userbankingservice.service;
+
+import com.example.userbankingservice.entity.Account;
+import com.example.userbankingservice.entity.User;
+import com.example.userbankingservice.repository.AccountRepository;
+import com.example.userbankingservice.repository.AccountStripeRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class BalanceStripingTest {
+    private AccountRepository accountRepository;
+    private AccountStripeRepository stripeRepository;
+    private BalanceStriping balanceStriping;
+    private Account hot;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        accountRepository = mock(AccountRepository.class);
+        stripeRepository = mock(AccountStripeRepository.class);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+        balanceStriping = new BalanceStriping(accountRepository, stripeRepository, transactionTemplate,
+                mock(LazyBalanceAccrual.class), new SimpleMeterRegistry(), Set.of(7L), 4);
+
+        hot = new Account();
+        hot.setId(70L);
+        User user = new User();
+        user.setId(7L);
+        hot.setUser(user);
+        hot.setBalance(10_00L);
+        when(accountRepository.findStriped()).thenReturn(List.of());
+        when(accountRepository.findByUserIdForUpdate(7L)).thenReturn(hot);
+        when(stripeRepository.drain(anyLong())).thenReturn(BigDecimal.ZERO);
+    }
+
+    @Test
+    void configure_CreatesStripesForConfiguredAccounts() {
+        balanceStriping.configure();
+
+        assertTrue(balanceStriping.isStriped(7L));
+        assertFalse(balanceStriping.isStriped(8L));
+        verify(stripeRepository).deleteFromStripe(70L, 4);
+        verify(stripeRepository).createStripes(70L, 4);
+        verify(accountRepository).updateStripes(70L, 4);
+    }
+
+    @Test
+    void credit_WaitsForRandomStripeWhenAllAreLocked() {
+        balanceStriping.configure();
+        when(stripeRepository.creditFreeStripe(70L, new BigDecimal("10.00"))).thenReturn(0);
+        when(stripeRepository.creditStripe(eq(70L), anyInt(), eq(new BigDecimal("10.00")))).thenReturn(1);
+
+        balanceStriping.credit(7L, 10_00L);
+
+        verify(stripeRepository).creditStripe(eq(70L), intThat(stripe -> stripe >= 0 && stripe < 4), eq(new BigDecimal("10.00")));
+    }
+
+    @Test
+    void borrow_MovesStripesIntoAccountRow() {
+        hot.setStripes(4);
+        when(stripeRepository.drain(70L)).thenReturn(new BigDecimal("25.50"));
+
+        balanceStriping.borrow(hot);
+
+        assertEquals(35_50L, hot.getBalance());
+    }
+
+    @Test
+    void borrow_SkipsAccountsWithoutStripes() {
+        balanceStriping.borrow(hot);
+
+        assertEquals(10_00L, hot.getBalance());
+        verify(stripeRepository, never()).drain(anyLong());
+    }
+}
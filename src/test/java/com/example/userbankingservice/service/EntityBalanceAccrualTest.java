@@ -0,0 +1,85 @@
+package com.example.userbankingservice.service;
+
+import com.example.userbankingservice.entity.Account;
+import com.example.userbankingservice.repository.AccountRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class EntityBalanceAccrualTest {
+    private static final long TICK = 100L;
+
+    private AccountRepository accountRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private EntityBalanceAccrual accrual;
+
+    @BeforeEach
+    void setUp() {
+        accountRepository = mock(AccountRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        TransactionRetryExecutor retryExecutor = new TransactionRetryExecutor(
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), meterRegistry, 3, 1);
+        accrual = new EntityBalanceAccrual(accountRepository, retryExecutor, 2);
+        when(accountRepository.findChunkUpperBound(anyLong(), anyInt(), anyInt(), anyCollection()))
+                .thenReturn(2L, 4L, null);
+    }
+
+    @Test
+    void accrue_RetriesOnlyConflictingChunk() {
+        Account first = account(1L, 100_00L);
+        Account second = account(3L, 100_00L);
+        when(accountRepository.findGrowingInRange(eq(Long.MIN_VALUE), eq(2L), anyInt(), anyCollection(), eq(TICK)))
+                .thenReturn(List.of(first));
+        when(accountRepository.findGrowingInRange(eq(2L), eq(4L), anyInt(), anyCollection(), eq(TICK)))
+                .thenReturn(List.of(second));
+        // Перевод изменил счет 3 после чтения: первая запись диапазона (2, 4] откатывается
+        when(accountRepository.save(second))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Account.class, 3L))
+                .thenReturn(second);
+
+        EntityBalanceAccrual.Result result = accrual.accrue(AccrualSlice.ALL, TICK);
+
+        assertEquals(2, result.updatedAccounts());
+        assertEquals(0, result.failedChunks());
+        verify(accountRepository, times(1)).findGrowingInRange(eq(Long.MIN_VALUE), eq(2L), anyInt(), anyCollection(), eq(TICK));
+        verify(accountRepository, times(2)).findGrowingInRange(eq(2L), eq(4L), anyInt(), anyCollection(), eq(TICK));
+        assertEquals(TICK, first.getLastAccruedTick());
+        assertEquals(1.0, meterRegistry.counter("accrual.retries", "operation", "accrual-chunk",
+                "reason", "ObjectOptimisticLockingFailureException").count());
+        assertTrue(meterRegistry.find("transfer.retries").counters().isEmpty());
+    }
+
+    @Test
+    void accrue_ExhaustedChunkDoesNotStopRun() {
+        Account first = account(1L, 100_00L);
+        Account second = account(3L, 100_00L);
+        when(accountRepository.findGrowingInRange(eq(Long.MIN_VALUE), eq(2L), anyInt(), anyCollection(), eq(TICK)))
+                .thenReturn(List.of(first));
+        when(accountRepository.findGrowingInRange(eq(2L), eq(4L), anyInt(), anyCollection(), eq(TICK)))
+                .thenReturn(List.of(second));
+        when(accountRepository.save(first)).thenThrow(new ObjectOptimisticLockingFailureException(Account.class, 1L));
+
+        EntityBalanceAccrual.Result result = accrual.accrue(AccrualSlice.ALL, TICK);
+
+        assertEquals(1, result.failedChunks());
+        assertEquals(1, result.updatedAccounts());
+        assertEquals(110_00L, second.getBalance());
+    }
+
+    private static Account account(Long id, long balance) {
+        Account account = new Account();
+        account.setId(id);
+        account.setBalance(balance);
+        account.setInitialBalance(balance);
+        return account;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.userbankingservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    @Test
+    void fromDecimal_ConvertsToKopecks() {
+        assertEquals(30_00L, Money.fromDecimal(new BigDecimal("30")));
+        assertEquals(30_50L, Money.fromDecimal(new BigDecimal("30.500")));
+        assertEquals(new BigDecimal("30.50"), Money.toDecimal(30_50L));
+    }
+
+    @Test
+    void fromDecimal_RejectsFractionsOfKopeck() {
+        assertFalse(Money.fits(new BigDecimal("0.001")));
+        assertThrows(RuntimeException.class, () -> Money.fromDecimal(new BigDecimal("0.001")));
+    }
+
+    @Test
+    void fromDecimal_RejectsAmountsOutsideLong() {
+        assertEquals(Long.MAX_VALUE, Money.fromDecimal(new BigDecimal("92233720368547758.07")));
+        assertThrows(RuntimeException.class, () -> Money.fromDecimal(new BigDecimal("92233720368547758.08")));
+    }
+
+    @Test
+    void add_Overflow() {
+        assertThrows(ArithmeticException.class, () -> Money.add(Long.MAX_VALUE, 1));
+        assertThrows(ArithmeticException.class, () -> Money.subtract(Long.MIN_VALUE, 1));
+    }
+
+    @Test
+    void percent_RoundsHalfUp() {
+        // 0.05 * 1.10 = 0.055 -> 0.06, 0.04 * 1.10 = 0.044 -> 0.04
+        assertEquals(6L, Money.percent(5L, 110));
+        assertEquals(4L, Money.percent(4L, 110));
+        assertEquals(-6L, Money.percent(-5L, 110));
+    }
+
+    @Test
+    void accrueOnce_MatchesBigDecimalRounding() {
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            long balance = random.nextInt(100_000_000);
+            long initialBalance = random.nextInt(100_000_000);
+            BigDecimal expected = Money.toDecimal(balance).multiply(new BigDecimal("1.10"))
+                    .min(Money.toDecimal(initialBalance).multiply(new BigDecimal("2.07")))
+                    .setScale(2, RoundingMode.HALF_UP);
+            assertEquals(Money.fromDecimal(expected),
+                    AccrualPolicy.accrueOnce(balance, AccrualPolicy.maxBalance(initialBalance)));
+        }
+    }
+}
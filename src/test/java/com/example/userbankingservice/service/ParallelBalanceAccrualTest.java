@@ -0,0 +1,158 @@
+package com.example.userbankingservice.service;
+
+import com.example.userbankingservice.repository.AccountRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.*;
+
+class ParallelBalanceAccrualTest {
+    private static final long TICK = 100L;
+    private AccountRepository accountRepository;
+    private JdbcTemplate jdbcTemplate;
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+    private ParallelBalanceAccrual accrual;
+    // Строки запросов UPDATE: {ID, новый баланс, версия}
+    private final List<List<long[]>> batches = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        accountRepository = mock(AccountRepository.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        namedJdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+        TransactionRetryExecutor retryExecutor = mock(TransactionRetryExecutor.class);
+        when(retryExecutor.execute(anyString(), anyString(), any(Supplier.class)))
+                .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(2)).get());
+        accrual = new ParallelBalanceAccrual(accountRepository, jdbcTemplate, namedJdbcTemplate, retryExecutor,
+                new SimpleMeterRegistry(), 100, 2);
+        when(accountRepository.findChunkUpperBound(anyLong(), anyInt(), anyInt(), anyCollection()))
+                .thenReturn(30L, (Long) null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        accrual.shutdown();
+    }
+
+    @Test
+    void accrue_WritesChangedAccountsInOneBatch() throws Exception {
+        rows(new long[][]{
+                {1, 10_05L, 100_00L, 7},
+                // 0.04 -> 0.044 -> 0.04: баланс не меняется, строка не перезаписывается
+                {2, 4L, 1000_00L, 3},
+                {3, 200_00L, 100_00L, 5}});
+        updatedIds(List.of(1L, 3L));
+
+        ParallelBalanceAccrual.Result result = accrual.accrue(AccrualSlice.ALL, TICK);
+
+        assertEquals(2, result.updatedAccounts());
+        assertEquals(1, batches.size());
+        assertEquals(2, batches.get(0).size());
+        assertArrayEquals(new long[]{1, 11_06L, 7}, batches.get(0).get(0));
+        assertArrayEquals(new long[]{3, 207_00L, 5}, batches.get(0).get(1));
+    }
+
+    @Test
+    void accrue_RereadsAccountsChangedByTransfer() throws Exception {
+        rows(new long[][]{{1, 100_00L, 100_00L, 1}, {2, 100_00L, 100_00L, 1}},
+                // Перевод списал 50.00 со счета 2 после чтения диапазона
+                new long[][]{{2, 50_00L, 100_00L, 2}});
+        updatedIds(List.of(1L), List.of(2L));
+
+        ParallelBalanceAccrual.Result result = accrual.accrue(AccrualSlice.ALL, TICK);
+
+        assertEquals(2, result.updatedAccounts());
+        assertEquals(1, result.conflicts());
+        assertArrayEquals(new long[]{2, 55_00L, 2}, batches.get(1).get(0));
+    }
+
+    @Test
+    void accrue_ReadsOnlyAccountsNotAccruedInTick() throws Exception {
+        rows(new long[][]{});
+
+        accrual.accrue(AccrualSlice.ALL, TICK);
+
+        ArgumentCaptor<SqlParameterSource> params = ArgumentCaptor.forClass(SqlParameterSource.class);
+        verify(namedJdbcTemplate).query(contains("last_accrued_tick < :tick"), params.capture(), any(RowCallbackHandler.class));
+        assertEquals(TICK, params.getValue().getValue("tick"));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void accrue_FailedChunkDoesNotStopRun() throws Exception {
+        rows(new long[][]{{1, 100_00L, 100_00L, 1}});
+        when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class)))
+                .thenThrow(new DataAccessResourceFailureException("down"));
+
+        ParallelBalanceAccrual.Result result = accrual.accrue(AccrualSlice.ALL, TICK);
+
+        assertEquals(1, result.failedChunks());
+        assertEquals(0, result.updatedAccounts());
+    }
+
+    // Каждый вызов выборки возвращает следующий набор строк {id, баланс, начальный баланс, версия}
+    private void rows(long[][]... selects) throws Exception {
+        int[] call = {0};
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(2);
+            for (long[] row : selects[call[0]++]) {
+                ResultSet rs = mock(ResultSet.class);
+                for (int column = 0; column < row.length; column++) {
+                    when(rs.getLong(column + 1)).thenReturn(row[column]);
+                }
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(namedJdbcTemplate).query(anyString(), any(SqlParameterSource.class), any(RowCallbackHandler.class));
+    }
+
+    // Каждый вызов UPDATE возвращает следующий список ID, которые совпали по версии
+    @SafeVarargs
+    private void updatedIds(List<Long>... results) throws Exception {
+        int[] call = {0};
+        when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class))).thenAnswer(invocation -> {
+            PreparedStatementCreator creator = invocation.getArgument(0);
+            Connection connection = mock(Connection.class);
+            when(connection.prepareStatement(anyString())).thenReturn(mock(PreparedStatement.class));
+            List<Object[]> arrays = new ArrayList<>();
+            when(connection.createArrayOf(anyString(), any(Object[].class))).thenAnswer(arrayInvocation -> {
+                arrays.add(arrayInvocation.getArgument(1));
+                return mock(Array.class);
+            });
+            creator.createPreparedStatement(connection);
+            // Массивы параметров: ID, балансы, признаки потолка, версии
+            List<long[]> batch = new ArrayList<>();
+            for (int i = 0; i < arrays.get(0).length; i++) {
+                batch.add(new long[]{(Long) arrays.get(0)[i], (Long) arrays.get(1)[i], (Long) arrays.get(3)[i]});
+            }
+            batches.add(batch);
+            return results[call[0]++];
+        });
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.userbankingservice.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.KeysetScrollPosition;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SearchCursorTest {
+
+    @Test
+    void decode_RestoresNameAndId() {
+        KeysetScrollPosition position = SearchCursor.decode(SearchCursor.encode("Иван: Иванов", 42L));
+        assertEquals("Иван: Иванов", position.getKeys().get("name"));
+        assertEquals(42L, position.getKeys().get("id"));
+    }
+
+    @Test
+    void decode_InvalidCursor() {
+        assertThrows(RuntimeException.class, () -> SearchCursor.decode("not a cursor"));
+        assertThrows(RuntimeException.class, () -> SearchCursor.decode("bm8tc2VwYXJhdG9y"));
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.userbankingservice.service;
+
+import com.example.userbankingservice.entity.Account;
+import com.example.userbankingservice.entity.PendingTransfer;
+import com.example.userbankingservice.repository.AccountRepository;
+import com.example.userbankingservice.repository.PendingTransferRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ShardedTransferEngineTest {
+    private AccountRepository accountRepository;
+    private PendingTransferRepository pendingTransferRepository;
+    private TransactionRetryExecutor retryExecutor;
+    private TransferJournal transferJournal;
+    private TransferIdempotencyStore idempotencyStore;
+    private ShardedTransferEngine engine;
+    private Account fromAccount;
+    private Account toAccount;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        accountRepository = mock(AccountRepository.class);
+        pendingTransferRepository = mock(PendingTransferRepository.class);
+        transferJournal = mock(TransferJournal.class);
+        idempotencyStore = mock(TransferIdempotencyStore.class);
+        retryExecutor = mock(TransactionRetryExecutor.class);
+        when(retryExecutor.execute(anyString(), any(Supplier.class)))
+                .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(1)).get());
+        when(pendingTransferRepository.save(any())).thenAnswer(invocation -> {
+            PendingTransfer pending = invocation.getArgument(0);
+            pending.setId(500L);
+            return pending;
+        });
+        when(pendingTransferRepository.deleteInState(anyLong(), any())).thenReturn(1);
+        when(pendingTransferRepository.changeState(anyLong(), any(), any(), any())).thenReturn(1);
+        fromAccount = account(100_00L);
+        toAccount = account(100_00L);
+        when(accountRepository.findByUserIdForUpdate(1L)).thenReturn(fromAccount);
+        when(accountRepository.findByUserIdForUpdate(2L)).thenReturn(toAccount);
+        engine = engine(10, 5000);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        engine.shutdown();
+    }
+
+    @Test
+    void transfer_DebitsAndCreditsThroughPendingRow() {
+        engine.transfer(1L, 2L, 30_00L);
+
+        assertEquals(70_00L, fromAccount.getBalance());
+        assertEquals(130_00L, toAccount.getBalance());
+        verify(pendingTransferRepository).save(argThat(pending -> pending.getState() == PendingTransfer.State.CREDIT
+                && pending.getAmount() == 30_00L && pending.getFromBalanceAfter() == 70_00L));
+        verify(pendingTransferRepository).deleteInState(500L, PendingTransfer.State.CREDIT);
+        verify(transferJournal).append(1L, 2L, 30_00L, 100_00L, 70_00L, 100_00L, 130_00L);
+    }
+
+    @Test
+    void transfer_InsufficientFunds() {
+        RuntimeException e = assertThrows(RuntimeException.class, () -> engine.transfer(1L, 2L, 150_00L));
+
+        assertEquals("Недостаточно средств", e.getMessage());
+        assertEquals(100_00L, fromAccount.getBalance());
+        verify(pendingTransferRepository, never()).save(any());
+        verifyNoInteractions(transferJournal);
+    }
+
+    @Test
+    void transfer_CreditFailureRefundsSender() {
+        when(accountRepository.findByUserIdForUpdate(2L)).thenReturn(null);
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> engine.transfer(1L, 2L, 30_00L));
+
+        assertEquals("Счет не найден", e.getMessage());
+        assertEquals(100_00L, fromAccount.getBalance());
+        verify(pendingTransferRepository).changeState(500L, PendingTransfer.State.CREDIT, PendingTransfer.State.REFUND,
+                "Счет не найден");
+        verify(pendingTransferRepository).deleteInState(500L, PendingTransfer.State.REFUND);
+        verifyNoInteractions(transferJournal);
+    }
+
+    @Test
+    void transfer_FailedRefundStaysPending() {
+        when(accountRepository.findByUserIdForUpdate(2L)).thenReturn(null);
+        when(pendingTransferRepository.deleteInState(500L, PendingTransfer.State.REFUND))
+                .thenThrow(new DataAccessResourceFailureException("down"));
+
+        assertThrows(TransferPendingException.class, () -> engine.transfer(1L, 2L, 30_00L));
+
+        assertEquals(70_00L, fromAccount.getBalance());
+    }
+
+    @Test
+    void transfer_InFlightLimitAndTimeout() throws Exception {
+        engine.shutdown();
+        engine = engine(1, 200);
+        CountDownLatch release = new CountDownLatch(1);
+        when(accountRepository.findByUserIdForUpdate(1L)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return fromAccount;
+        });
+
+        // Первый перевод не успевает за timeout-ms: это не отказ, его шаги остаются в очереди шарда
+        assertThrows(TransferPendingException.class, () -> engine.transfer(1L, 2L, 10_00L));
+        RuntimeException e = assertThrows(RuntimeException.class, () -> engine.transfer(1L, 2L, 10_00L));
+        assertEquals("Сервис переводов перегружен, повторите позже", e.getMessage());
+
+        release.countDown();
+        verify(transferJournal, timeout(2000)).append(1L, 2L, 10_00L, 100_00L, 90_00L, 100_00L, 110_00L);
+    }
+
+    @Test
+    void transfer_IdempotencyKeyCompletedWithCredit() {
+        when(idempotencyStore.claimPending(1L, "key-1", "2:30")).thenReturn(true);
+
+        assertTrue(engine.transfer(1L, 2L, 30_00L, "key-1", "2:30"));
+
+        verify(idempotencyStore).complete(1L, "key-1", null);
+    }
+
+    @Test
+    void transfer_ClaimedIdempotencyKeyIsNotDebited() {
+        when(idempotencyStore.claimPending(1L, "key-1", "2:30")).thenReturn(false);
+
+        assertFalse(engine.transfer(1L, 2L, 30_00L, "key-1", "2:30"));
+
+        assertEquals(100_00L, fromAccount.getBalance());
+        verify(pendingTransferRepository, never()).save(any());
+    }
+
+    @Test
+    void recover_CreditsStalePendingTransfer() {
+        PendingTransfer pending = new PendingTransfer();
+        pending.setId(700L);
+        pending.setFromUserId(1L);
+        pending.setToUserId(2L);
+        pending.setAmount(10_00L);
+        pending.setFromBalanceBefore(110_00L);
+        pending.setFromBalanceAfter(100_00L);
+        pending.setState(PendingTransfer.State.CREDIT);
+        pending.setCreatedAt(LocalDateTime.now().minusHours(1));
+        when(pendingTransferRepository.findByCreatedAtBeforeOrderByCreatedAt(any(), any())).thenReturn(List.of(pending));
+
+        engine.recover();
+
+        verify(transferJournal, timeout(2000)).append(1L, 2L, 10_00L, 110_00L, 100_00L, 100_00L, 110_00L);
+        verify(pendingTransferRepository).deleteInState(eq(700L), eq(PendingTransfer.State.CREDIT));
+    }
+
+    private ShardedTransferEngine engine(int maxInFlight, long timeoutMs) {
+        return new ShardedTransferEngine(accountRepository, pendingTransferRepository, retryExecutor,
+                mock(LazyBalanceAccrual.class), transferJournal, idempotencyStore, mock(BalanceStriping.class),
+                2, maxInFlight, timeoutMs, 60000);
+    }
+
+    private static Account account(long balance) {
+        Account account = new Account();
+        account.setBalance(balance);
+        return account;
+    }
+}
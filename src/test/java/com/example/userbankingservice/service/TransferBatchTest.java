@@ -0,0 +1,154 @@
+package com.example.userbankingservice.service;
+
+import com.example.userbankingservice.cache.UserCacheIndex;
+import com.example.userbankingservice.entity.Account;
+import com.example.userbankingservice.entity.User;
+import com.example.userbankingservice.repository.AccountRepository;
+import com.example.userbankingservice.repository.EmailDataRepository;
+import com.example.userbankingservice.repository.PhoneDataRepository;
+import com.example.userbankingservice.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TransferBatchTest {
+    private AccountRepository accountRepository;
+    private UserCacheIndex userCacheIndex;
+    private TransferJournal transferJournal;
+    private BalanceStriping balanceStriping;
+    private UserServiceImpl userService;
+    private Account sender;
+    private Account first;
+    private Account second;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        accountRepository = mock(AccountRepository.class);
+        userCacheIndex = mock(UserCacheIndex.class);
+        transferJournal = mock(TransferJournal.class);
+        balanceStriping = mock(BalanceStriping.class);
+        TransactionRetryExecutor retryExecutor = mock(TransactionRetryExecutor.class);
+        when(retryExecutor.execute(anyString(), any(Supplier.class)))
+                .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(1)).get());
+        userService = new UserServiceImpl(mock(UserRepository.class), accountRepository,
+                mock(EmailDataRepository.class), mock(PhoneDataRepository.class), retryExecutor,
+                mock(LazyBalanceAccrual.class), mock(ObjectProvider.class), userCacheIndex, mock(UserSearchIndex.class),
+                mock(TransferIdempotencyStore.class), transferJournal, balanceStriping,
+                mock(AccountContentionTracker.class));
+        ReflectionTestUtils.setField(userService, "maxBatchItems", 10);
+
+        sender = account(1L, "100.00");
+        first = account(2L, "0.00");
+        second = account(3L, "0.00");
+        when(accountRepository.findAllByUserIdInForUpdate(any())).thenReturn(List.of(sender, first, second));
+    }
+
+    @Test
+    void transferBatch_AtomicAppliesAll() {
+        TransferBatchResult result = userService.transferBatch(1L, List.of(
+                new TransferBatchItem(2L, new BigDecimal("30.00")),
+                new TransferBatchItem(3L, new BigDecimal("20.00")),
+                new TransferBatchItem(2L, new BigDecimal("10.00"))), TransferBatchMode.ATOMIC);
+
+        assertEquals(3, result.applied());
+        assertEquals(40_00L, sender.getBalance());
+        assertEquals(40_00L, first.getBalance());
+        assertEquals(20_00L, second.getBalance());
+        verify(accountRepository, times(1)).findAllByUserIdInForUpdate(any());
+        // Кеши не содержат балансов, поэтому перевод их не сбрасывает
+        verifyNoInteractions(userCacheIndex);
+        // Строка журнала на каждый перевод с балансами до и после именно этого перевода
+        verify(transferJournal).append(1L, 2L, 10_00L, 50_00L, 40_00L,
+                30_00L, 40_00L);
+    }
+
+    @Test
+    void transferBatch_AtomicRejectsWholeBatch() {
+        RuntimeException e = assertThrows(RuntimeException.class, () -> userService.transferBatch(1L, List.of(
+                new TransferBatchItem(2L, new BigDecimal("80.00")),
+                new TransferBatchItem(3L, new BigDecimal("30.00"))), TransferBatchMode.ATOMIC));
+
+        assertEquals("Перевод 1: Недостаточно средств", e.getMessage());
+        verify(userCacheIndex, never()).evictUser(any());
+    }
+
+    @Test
+    void transferBatch_AtomicValidatesBeforeLocking() {
+        RuntimeException e = assertThrows(RuntimeException.class, () -> userService.transferBatch(1L, List.of(
+                new TransferBatchItem(2L, new BigDecimal("10.00")),
+                new TransferBatchItem(1L, new BigDecimal("10.00"))), TransferBatchMode.ATOMIC));
+
+        assertEquals("Перевод 1: Перевод самому себе запрещен", e.getMessage());
+        verify(accountRepository, never()).findAllByUserIdInForUpdate(any());
+    }
+
+    @Test
+    void transferBatch_BestEffortSkipsFailedItems() {
+        TransferBatchResult result = userService.transferBatch(1L, List.of(
+                new TransferBatchItem(2L, new BigDecimal("80.00")),
+                new TransferBatchItem(3L, new BigDecimal("30.00")),
+                new TransferBatchItem(4L, new BigDecimal("5.00")),
+                new TransferBatchItem(3L, new BigDecimal("-1.00")),
+                new TransferBatchItem(3L, new BigDecimal("20.00"))), TransferBatchMode.BEST_EFFORT);
+
+        assertEquals(2, result.applied());
+        assertEquals(3, result.rejected());
+        assertEquals("Недостаточно средств", result.items().get(1).error());
+        assertEquals("Счет не найден", result.items().get(2).error());
+        assertEquals("Сумма должна быть положительной", result.items().get(3).error());
+        assertTrue(result.items().get(4).applied());
+        assertEquals(0L, sender.getBalance());
+        assertEquals(20_00L, second.getBalance());
+        verify(userCacheIndex, never()).evictUser(eq(4L));
+    }
+
+    @Test
+    void transferBatch_StripedRecipientCreditedOnceWithoutRowLock() {
+        when(balanceStriping.isStriped(5L)).thenReturn(true);
+        when(accountRepository.findAllByUserIdInForUpdate(any())).thenReturn(List.of(sender, first));
+
+        TransferBatchResult result = userService.transferBatch(1L, List.of(
+                new TransferBatchItem(5L, new BigDecimal("30.00")),
+                new TransferBatchItem(2L, new BigDecimal("10.00")),
+                new TransferBatchItem(5L, new BigDecimal("20.00"))), TransferBatchMode.ATOMIC);
+
+        assertEquals(3, result.applied());
+        assertEquals(40_00L, sender.getBalance());
+        verify(accountRepository).findAllByUserIdInForUpdate(Set.of(1L, 2L));
+        verify(balanceStriping).borrow(sender);
+        verify(balanceStriping).credit(5L, 50_00L);
+        verify(transferJournal).append(1L, 5L, 20_00L, 60_00L, 40_00L,
+                null, null);
+    }
+
+    @Test
+    void transferBatch_TooManyItems() {
+        List<TransferBatchItem> items = Collections.nCopies(11, new TransferBatchItem(2L, BigDecimal.ONE));
+        assertThrows(RuntimeException.class, () -> userService.transferBatch(1L, items, TransferBatchMode.BEST_EFFORT));
+    }
+
+    private static Account account(Long userId, String balance) {
+        User user = new User();
+        user.setId(userId);
+        Account account = new Account();
+        account.setId(userId * 10);
+        account.setUser(user);
+        account.setBalance(Money.fromDecimal(new BigDecimal(balance)));
+        account.setInitialBalance(account.getBalance());
+        return account;
+    }
+}
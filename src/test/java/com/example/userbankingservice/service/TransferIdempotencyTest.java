@@ -0,0 +1,176 @@
+package com.example.userbankingservice.service;
+
+import com.example.userbankingservice.cache.UserCacheIndex;
+import com.example.userbankingservice.entity.Account;
+import com.example.userbankingservice.entity.TransferIdempotency;
+import com.example.userbankingservice.entity.User;
+import com.example.userbankingservice.repository.AccountRepository;
+import com.example.userbankingservice.repository.EmailDataRepository;
+import com.example.userbankingservice.repository.PhoneDataRepository;
+import com.example.userbankingservice.repository.TransferIdempotencyRepository;
+import com.example.userbankingservice.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TransferIdempotencyTest {
+    private AccountRepository accountRepository;
+    private TransferIdempotencyRepository idempotencyRepository;
+    private UserServiceImpl userService;
+    private Account sender;
+    private Account recipient;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        accountRepository = mock(AccountRepository.class);
+        idempotencyRepository = mock(TransferIdempotencyRepository.class);
+        TransactionRetryExecutor retryExecutor = mock(TransactionRetryExecutor.class);
+        when(retryExecutor.execute(anyString(), any(Supplier.class)))
+                .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(1)).get());
+        TransferIdempotencyStore store = new TransferIdempotencyStore(idempotencyRepository, new SimpleMeterRegistry(),
+                100, Duration.ofHours(1));
+        userService = new UserServiceImpl(mock(UserRepository.class), accountRepository,
+                mock(EmailDataRepository.class), mock(PhoneDataRepository.class), retryExecutor,
+                mock(LazyBalanceAccrual.class), mock(ObjectProvider.class), mock(UserCacheIndex.class),
+                mock(UserSearchIndex.class), store, mock(TransferJournal.class), mock(BalanceStriping.class),
+                mock(AccountContentionTracker.class));
+        ReflectionTestUtils.setField(userService, "transferMode", TransferMode.PESSIMISTIC);
+
+        sender = account(1L, "100.00");
+        recipient = account(2L, "0.00");
+        when(accountRepository.findAllByUserIdInForUpdate(any())).thenReturn(List.of(sender, recipient));
+        when(idempotencyRepository.findById(any())).thenReturn(Optional.empty());
+        when(idempotencyRepository.insertIfAbsent(any(), anyString(), anyString(), any())).thenReturn(1);
+    }
+
+    @Test
+    void transferMoney_RepeatedKeyDoesNotLockAccounts() {
+        userService.transferMoney(1L, 2L, new BigDecimal("30.00"), "key-1");
+        userService.transferMoney(1L, 2L, new BigDecimal("30.0"), "key-1");
+
+        assertEquals(70_00L, sender.getBalance());
+        verify(accountRepository, times(1)).findAllByUserIdInForUpdate(any());
+        verify(idempotencyRepository, times(1)).insertIfAbsent(1L, "key-1", "2:30", null);
+    }
+
+    @Test
+    void transferMoney_StoredOutcomeIsReplayed() {
+        when(idempotencyRepository.findById(new TransferIdempotency.Key(1L, "key-2")))
+                .thenReturn(Optional.of(stored("2:30", "Недостаточно средств")));
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> userService.transferMoney(1L, 2L, new BigDecimal("30"), "key-2"));
+
+        assertEquals("Недостаточно средств", e.getMessage());
+        verify(accountRepository, never()).findAllByUserIdInForUpdate(any());
+    }
+
+    @Test
+    void transferMoney_KeyReusedWithOtherParameters() {
+        when(idempotencyRepository.findById(new TransferIdempotency.Key(1L, "key-3")))
+                .thenReturn(Optional.of(stored("2:30", null)));
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> userService.transferMoney(1L, 2L, new BigDecimal("31"), "key-3"));
+
+        assertEquals("Ключ идемпотентности уже использован для другого перевода", e.getMessage());
+    }
+
+    @Test
+    void transferMoney_ConcurrentDuplicateWaitsForKey() {
+        // Вставка ключа вернула 0: параллельный запрос с этим ключом уже зафиксировал перевод
+        when(idempotencyRepository.insertIfAbsent(any(), anyString(), anyString(), any())).thenReturn(0);
+        when(idempotencyRepository.findById(new TransferIdempotency.Key(1L, "key-4")))
+                .thenReturn(Optional.empty(), Optional.of(stored("2:30", null)));
+
+        userService.transferMoney(1L, 2L, new BigDecimal("30"), "key-4");
+
+        assertEquals(100_00L, sender.getBalance());
+        verify(accountRepository, never()).findAllByUserIdInForUpdate(any());
+    }
+
+    @Test
+    void transferMoney_FailureIsRecorded() {
+        assertThrows(RuntimeException.class, () -> userService.transferMoney(1L, 2L, new BigDecimal("150"), "key-5"));
+
+        verify(idempotencyRepository).insertIfAbsent(1L, "key-5", "2:150", "Недостаточно средств");
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> userService.transferMoney(1L, 2L, new BigDecimal("150"), "key-5"));
+        assertEquals("Недостаточно средств", e.getMessage());
+        verify(accountRepository, times(1)).findAllByUserIdInForUpdate(any());
+    }
+
+    @Test
+    void transferMoney_LockConflictIsNotRecorded() {
+        when(accountRepository.findAllByUserIdInForUpdate(any())).thenThrow(new CannotAcquireLockException("lock"));
+
+        assertThrows(CannotAcquireLockException.class,
+                () -> userService.transferMoney(1L, 2L, new BigDecimal("10"), "key-6"));
+
+        verify(idempotencyRepository, never()).insertIfAbsent(eq(1L), eq("key-6"), anyString(), anyString());
+        verify(idempotencyRepository, times(1)).insertIfAbsent(1L, "key-6", "2:10", null);
+    }
+
+    @Test
+    void transferMoney_KeyedTransferUsesConfiguredMode() {
+        ReflectionTestUtils.setField(userService, "transferMode", TransferMode.OPTIMISTIC);
+        when(accountRepository.findAllByUserIdIn(any())).thenReturn(List.of(sender, recipient));
+
+        userService.transferMoney(1L, 2L, new BigDecimal("30"), "key-8");
+
+        assertEquals(70_00L, sender.getBalance());
+        verify(idempotencyRepository).insertIfAbsent(1L, "key-8", "2:30", null);
+        verify(accountRepository).findAllByUserIdIn(any());
+        verify(accountRepository, never()).findAllByUserIdInForUpdate(any());
+    }
+
+    @Test
+    void transferMoney_PendingShardedTransferIsNotCached() {
+        TransferIdempotency pending = stored("2:30", null);
+        pending.setPending(true);
+        when(idempotencyRepository.findById(new TransferIdempotency.Key(1L, "key-7")))
+                .thenReturn(Optional.of(pending), Optional.of(stored("2:30", "Счет не найден")));
+
+        assertThrows(TransferPendingException.class,
+                () -> userService.transferMoney(1L, 2L, new BigDecimal("30"), "key-7"));
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> userService.transferMoney(1L, 2L, new BigDecimal("30"), "key-7"));
+
+        assertEquals("Счет не найден", e.getMessage());
+        verify(accountRepository, never()).findAllByUserIdInForUpdate(any());
+    }
+
+    private static TransferIdempotency stored(String fingerprint, String error) {
+        TransferIdempotency row = new TransferIdempotency();
+        row.setFingerprint(fingerprint);
+        row.setError(error);
+        return row;
+    }
+
+    private static Account account(Long userId, String balance) {
+        User user = new User();
+        user.setId(userId);
+        Account account = new Account();
+        account.setId(userId * 10);
+        account.setUser(user);
+        account.setBalance(Money.fromDecimal(new BigDecimal(balance)));
+        account.setInitialBalance(account.getBalance());
+        return account;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.userbankingservice.service;
+
+import com.example.userbankingservice.entity.TransferJournalEntry;
+import com.example.userbankingservice.repository.TransferJournalRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class TransferJournalTest {
+    private TransferJournalRepository repository;
+    private TransferJournal journal;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(TransferJournalRepository.class);
+        journal = new TransferJournal(repository);
+    }
+
+    @Test
+    void append_SavesEntryInCallerTransaction() {
+        journal.append(1L, 2L, 1_00L, 100_00L, 99_00L, 5_00L, 6_00L);
+
+        ArgumentCaptor<TransferJournalEntry> entry = ArgumentCaptor.forClass(TransferJournalEntry.class);
+        verify(repository).save(entry.capture());
+        assertEquals(1L, entry.getValue().getFromUserId());
+        assertEquals(2L, entry.getValue().getToUserId());
+        assertEquals(1_00L, entry.getValue().getAmount());
+        assertEquals(99_00L, entry.getValue().getFromBalanceAfter());
+        assertEquals(6_00L, entry.getValue().getToBalanceAfter());
+        assertNotNull(entry.getValue().getCreatedAt());
+    }
+
+    @Test
+    void append_FailedWritePropagatesToTransfer() {
+        when(repository.save(any())).thenThrow(new RuntimeException("connection refused"));
+
+        assertThrows(RuntimeException.class, () -> journal.append(1L, 2L, 1_00L, 100_00L, 99_00L, null, null));
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.userbankingservice.service;
+
+import com.example.userbankingservice.cache.UserCacheIndex;
+import com.example.userbankingservice.entity.Account;
+import com.example.userbankingservice.repository.AccountBalanceRow;
+import com.example.userbankingservice.repository.AccountRepository;
+import com.example.userbankingservice.repository.EmailDataRepository;
+import com.example.userbankingservice.repository.PhoneDataRepository;
+import com.example.userbankingservice.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class TransferStatementTest {
+    private AccountRepository accountRepository;
+    private TransferJournal transferJournal;
+    private BalanceStriping balanceStriping;
+    private LazyBalanceAccrual lazyBalanceAccrual;
+    private UserServiceImpl userService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        accountRepository = mock(AccountRepository.class);
+        transferJournal = mock(TransferJournal.class);
+        balanceStriping = mock(BalanceStriping.class);
+        lazyBalanceAccrual = mock(LazyBalanceAccrual.class);
+        TransactionRetryExecutor retryExecutor = mock(TransactionRetryExecutor.class);
+        when(retryExecutor.execute(anyString(), any(Supplier.class)))
+                .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(1)).get());
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(1)).run();
+            return null;
+        }).when(retryExecutor).execute(anyString(), any(Runnable.class));
+        userService = new UserServiceImpl(mock(UserRepository.class), accountRepository,
+                mock(EmailDataRepository.class), mock(PhoneDataRepository.class), retryExecutor,
+                lazyBalanceAccrual, mock(ObjectProvider.class), mock(UserCacheIndex.class), mock(UserSearchIndex.class),
+                mock(TransferIdempotencyStore.class), transferJournal, balanceStriping,
+                mock(AccountContentionTracker.class));
+        ReflectionTestUtils.setField(userService, "transferMode", TransferMode.STATEMENT);
+    }
+
+    @Test
+    void transferMoney_AppliesTransferInOneStatement() {
+        when(accountRepository.transferInStatement(1L, 2L, new BigDecimal("30.00")))
+                .thenReturn(List.of(row(1L, "70.00"), row(2L, "130.00")));
+
+        userService.transferMoney(1L, 2L, new BigDecimal("30.00"));
+
+        verify(accountRepository, never()).findAllByUserIdInForUpdate(any());
+        verify(transferJournal).append(1L, 2L, 30_00L, 100_00L, 70_00L,
+                100_00L, 130_00L);
+    }
+
+    @Test
+    void transferMoney_EmptyResultMeansInsufficientFunds() {
+        when(accountRepository.transferInStatement(any(), any(), any())).thenReturn(List.of());
+        when(accountRepository.findAllByUserIdIn(List.of(1L, 2L))).thenReturn(List.of(new Account(), new Account()));
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> userService.transferMoney(1L, 2L, new BigDecimal("30.00")));
+
+        assertEquals("Недостаточно средств", e.getMessage());
+        verifyNoInteractions(transferJournal);
+    }
+
+    @Test
+    void transferMoney_EmptyResultWithMissingAccount() {
+        when(accountRepository.transferInStatement(any(), any(), any())).thenReturn(List.of());
+        when(accountRepository.findAllByUserIdIn(List.of(1L, 2L))).thenReturn(List.of(new Account()));
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> userService.transferMoney(1L, 2L, new BigDecimal("30.00")));
+
+        assertEquals("Счет не найден", e.getMessage());
+    }
+
+    @Test
+    void transferMoney_StripedRecipientDebitsWithConditionalUpdate() {
+        when(balanceStriping.isStriped(2L)).thenReturn(true);
+        when(accountRepository.debitIfSufficient(1L, new BigDecimal("30.00"))).thenReturn(List.of(new BigDecimal("70.00")));
+
+        userService.transferMoney(1L, 2L, new BigDecimal("30.00"));
+
+        verify(balanceStriping).credit(2L, 30_00L);
+        verify(accountRepository, never()).transferInStatement(any(), any(), any());
+        verify(transferJournal).append(1L, 2L, 30_00L, 100_00L, 70_00L,
+                null, null);
+    }
+
+    @Test
+    void checkTransferMode_RejectsLazyAccrual() {
+        when(lazyBalanceAccrual.isEnabled()).thenReturn(true);
+
+        assertThrows(IllegalStateException.class, () -> userService.checkTransferMode());
+    }
+
+    private static AccountBalanceRow row(Long userId, String balance) {
+        return new AccountBalanceRow() {
+            @Override
+            public Long getUserId() {
+                return userId;
+            }
+
+            @Override
+            public BigDecimal getBalance() {
+                return new BigDecimal(balance);
+            }
+        };
+    }
+}
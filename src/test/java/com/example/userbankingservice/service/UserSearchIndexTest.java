@@ -0,0 +1,83 @@
+package com.example.userbankingservice.service;
+
+import com.example.userbankingservice.cache.CacheInvalidationBus;
+import com.example.userbankingservice.repository.EmailDataRepository;
+import com.example.userbankingservice.repository.PhoneDataRepository;
+import com.example.userbankingservice.repository.UserContactRow;
+import com.example.userbankingservice.repository.UserRepository;
+import com.example.userbankingservice.repository.UserSearchRow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserSearchIndexTest {
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final EmailDataRepository emailDataRepository = mock(EmailDataRepository.class);
+    private final PhoneDataRepository phoneDataRepository = mock(PhoneDataRepository.class);
+    private UserSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        when(userRepository.findAllSearchRows()).thenReturn(List.of(
+                row(1L, "John", "1990-01-01"),
+                row(2L, "Johnny", "1985-06-15"),
+                row(3L, "Anna", "2000-03-10"),
+                row(4L, "John", "1995-12-31")));
+        when(emailDataRepository.findAllContactRows()).thenReturn(List.of(contact(1L, "john@example.com"), contact(3L, "anna@example.com")));
+        when(phoneDataRepository.findAllContactRows()).thenReturn(List.of(contact(2L, "79201234567")));
+        index = new UserSearchIndex(userRepository, emailDataRepository, phoneDataRepository, CacheInvalidationBus.LOCAL, true);
+        index.load();
+    }
+
+    @Test
+    void search_NamePrefixOrderedByNameAndIdWithPagination() {
+        assertEquals(new UserSearchIndex.Result(List.of(1L, 4L), 3), index.search("John", null, null, null, 0, 2));
+        assertEquals(new UserSearchIndex.Result(List.of(2L), 3), index.search("John", null, null, null, 1, 2));
+    }
+
+    @Test
+    void search_DateOfBirthIsStrictlyAfter() {
+        assertEquals(new UserSearchIndex.Result(List.of(3L, 4L), 2), index.search(null, null, null, LocalDate.parse("1990-01-01"), 0, 10));
+    }
+
+    @Test
+    void search_ExactEmailAndPhoneCombinedWithOtherFilters() {
+        assertEquals(new UserSearchIndex.Result(List.of(1L), 1), index.search("Jo", "john@example.com", null, null, 0, 10));
+        assertEquals(new UserSearchIndex.Result(List.of(), 0), index.search("Anna", "john@example.com", null, null, 0, 10));
+        assertEquals(new UserSearchIndex.Result(List.of(2L), 1), index.search(null, null, "79201234567", null, 0, 10));
+    }
+
+    @Test
+    void refreshUser_ReplacesContacts() {
+        UserSearchRow anna = row(3L, "Anna", "2000-03-10");
+        when(userRepository.findSearchRowById(3L)).thenReturn(Optional.of(anna));
+        when(emailDataRepository.findValuesByUserId(3L)).thenReturn(List.of("anna.new@example.com"));
+        when(phoneDataRepository.findValuesByUserId(3L)).thenReturn(List.of());
+
+        index.userChanged(3L);
+
+        assertEquals(0, index.search(null, "anna@example.com", null, null, 0, 10).total());
+        assertEquals(List.of(3L), index.search(null, "anna.new@example.com", null, null, 0, 10).ids());
+    }
+
+    private static UserSearchRow row(Long id, String name, String dateOfBirth) {
+        return new Row(id, name, LocalDate.parse(dateOfBirth));
+    }
+
+    private static UserContactRow contact(Long userId, String contact) {
+        return new Contact(userId, contact);
+    }
+
+    private record Row(Long getId, String getName, LocalDate getDateOfBirth) implements UserSearchRow {
+    }
+
+    private record Contact(Long getUserId, String getContact) implements UserContactRow {
+    }
+}
@@ -12,6 +12,7 @@ import org.springframework.data.domain.PageImpl;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -24,6 +25,7 @@ class UserServiceTest {
     private UserService userService;
 
     private User user;
+    private UserSummary summary;
     private EmailData emailData;
     private PhoneData phoneData;
     private Account account;
@@ -33,6 +35,7 @@ class UserServiceTest {
         user = new User();
         user.setId(1L);
         user.setName("John Doe");
+        summary = new UserSummary(1L, "John Doe", null);
 
         emailData = new EmailData();
         emailData.setId(1L);
@@ -47,15 +50,15 @@ class UserServiceTest {
         account = new Account();
         account.setId(1L);
         account.setUser(user);
-        account.setBalance(BigDecimal.valueOf(1000.00));
+        account.setBalance(1000_00L);
     }
 
     @Test
     void findByEmail_Success() {
-        when(userService.findByEmail("john@example.com")).thenReturn(Optional.of(user));
-        Optional<User> result = userService.findByEmail("john@example.com");
+        when(userService.findByEmail("john@example.com")).thenReturn(Optional.of(summary));
+        Optional<UserSummary> result = userService.findByEmail("john@example.com");
         assertTrue(result.isPresent());
-        assertEquals(user, result.get());
+        assertEquals(summary, result.get());
         verify(userService).findByEmail("john@example.com");
     }
 
@@ -69,10 +72,10 @@ class UserServiceTest {
 
     @Test
     void findByPhone_Success() {
-        when(userService.findByPhone("+1234567890")).thenReturn(Optional.of(user));
-        Optional<User> result = userService.findByPhone("+1234567890");
+        when(userService.findByPhone("+1234567890")).thenReturn(Optional.of(summary));
+        Optional<UserSummary> result = userService.findByPhone("+1234567890");
         assertTrue(result.isPresent());
-        assertEquals(user, result.get());
+        assertEquals(summary, result.get());
         verify(userService).findByPhone("+1234567890");
     }
 
@@ -86,9 +89,9 @@ class UserServiceTest {
 
     @Test
     void getUserById_Success() {
-        when(userService.getUserById(1L)).thenReturn(user);
-        User result = userService.getUserById(1L);
-        assertEquals(user, result);
+        when(userService.getUserById(1L)).thenReturn(summary);
+        UserSummary result = userService.getUserById(1L);
+        assertEquals(summary, result);
         verify(userService).getUserById(1L);
     }
 
@@ -157,10 +160,12 @@ class UserServiceTest {
 
     @Test
     void searchUsers_Success() {
-        Page<User> page = new PageImpl<>(Collections.singletonList(user));
+        UserView view = new UserView(1L, "John Doe", null, List.of("john@example.com"), List.of("+1234567890"),
+                BigDecimal.valueOf(1000.00));
+        Page<UserView> page = new PageImpl<>(Collections.singletonList(view));
         when(userService.searchUsers("John", "john@example.com", "+1234567890", LocalDate.now(), 0, 10))
                 .thenReturn(page);
-        Page<User> result = userService.searchUsers("John", "john@example.com", "+1234567890", LocalDate.now(), 0, 10);
+        Page<UserView> result = userService.searchUsers("John", "john@example.com", "+1234567890", LocalDate.now(), 0, 10);
         assertEquals(1, result.getTotalElements());
         verify(userService).searchUsers("John", "john@example.com", "+1234567890", LocalDate.now(), 0, 10);
     }
@@ -0,0 +1,4 @@
+-- Последний период, за который к счету применено периодическое начисление. Проверяется и меняется
+-- в одной транзакции с балансом, поэтому счет не получает начисление дважды за период, даже если
+-- его партицию во время прохода забрал другой узел
+ALTER TABLE account ADD COLUMN last_accrued_tick BIGINT;
@@ -0,0 +1,11 @@
+-- Узлы, выполняющие начисление, и аренда партиций счетов между ними
+CREATE TABLE accrual_node (
+                              node_id VARCHAR(200) PRIMARY KEY,
+                              heartbeat_at TIMESTAMP NOT NULL
+);
+
+CREATE TABLE accrual_lease (
+                               partition_id INT PRIMARY KEY,
+                               owner VARCHAR(200),
+                               expires_at TIMESTAMP
+);
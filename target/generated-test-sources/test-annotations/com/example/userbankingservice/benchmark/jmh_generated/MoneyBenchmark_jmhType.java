@@ -0,0 +1,4 @@
+package com.example.userbankingservice.benchmark.jmh_generated;
+public class MoneyBenchmark_jmhType extends MoneyBenchmark_jmhType_B3 {
+}
+